@@ -38,6 +38,7 @@ class LogEvent(BaseModel):
     endpoint: Optional[str] = Field(None, description="API endpoint")
     duration_ms: Optional[float] = Field(None, description="Request duration in milliseconds")
     metadata: Optional[Dict[str, Any]] = Field(default_factory=dict, description="Additional metadata")
+    precomputed_features: Optional[Dict[str, float]] = Field(None, description="Message features computed by the caller")
     
     class Config:
         json_encoders = {
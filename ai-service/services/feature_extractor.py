@@ -192,7 +192,8 @@ class FeatureExtractor:
                 'http_status': event.http_status,
                 'endpoint': event.endpoint,
                 'duration_ms': event.duration_ms,
-                'metadata': event.metadata or {}
+                'metadata': event.metadata or {},
+                'precomputed_features': event.precomputed_features
             })
         return pd.DataFrame(data)
     
@@ -379,15 +380,19 @@ class FeatureExtractor:
         names = []
         
         messages = df['message'].fillna('').astype(str)
+        precomputed = df['precomputed_features'] if 'precomputed_features' in df.columns else None
         
         # Pattern counts
         for pattern_name, pattern in self.patterns.items():
-            pattern_counts = messages.apply(lambda x: len(pattern.findall(x))).values
+            name = f'pattern_{pattern_name}_count'
+            pattern_counts = self._precomputed_or_compute(
+                precomputed, name, messages, lambda x, p=pattern: len(p.findall(x)))
             features.append(pattern_counts.reshape(-1, 1))
-            names.append(f'pattern_{pattern_name}_count')
+            names.append(name)
         
         # Message entropy (complexity measure)
-        message_entropy = messages.apply(self._calculate_entropy).values
+        message_entropy = self._precomputed_or_compute(
+            precomputed, 'message_entropy', messages, self._calculate_entropy)
         features.append(message_entropy.reshape(-1, 1))
         names.append('message_entropy')
         
@@ -396,6 +401,19 @@ class FeatureExtractor:
         else:
             return np.array([]).reshape(len(df), 0), names
     
+    def _precomputed_or_compute(self, precomputed, name: str, messages: pd.Series, compute) -> np.ndarray:
+        """Use values precomputed by the caller (anomaly-detector-service) and only compute the missing ones"""
+        if precomputed is None:
+            return messages.apply(compute).values
+        
+        values = []
+        for features, message in zip(precomputed, messages):
+            if features and name in features:
+                values.append(features[name])
+            else:
+                values.append(compute(message))
+        return np.array(values, dtype=float)
+    
     def _preprocess_text(self, text: str) -> str:
         """Preprocess text for feature extraction"""
         if not text:
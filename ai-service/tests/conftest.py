@@ -0,0 +1,8 @@
+"""
+Makes the service modules importable when pytest is run from the ai-service directory
+"""
+
+import os
+import sys
+
+sys.path.insert(0, os.path.dirname(os.path.dirname(os.path.abspath(__file__))))
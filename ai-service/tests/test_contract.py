@@ -0,0 +1,119 @@
+"""
+Contract checks for the payloads anomaly-detector-service exchanges with /predict/batch.
+The request below has the exact shape AiScoringEngine.buildAIRequest produces.
+"""
+
+import copy
+from typing import List
+
+import pytest
+from pydantic import TypeAdapter
+
+from models.log_event import AnomalyResult, LogEvent, LogLevel
+from services.feature_extractor import FeatureExtractor
+
+JAVA_BATCH_REQUEST = [
+    {
+        "log_id": "log-1",
+        "timestamp": "2024-01-01T12:00:00",
+        "service_name": "payment-service",
+        "hostname": "payment-0",
+        "log_level": "ERROR",
+        "message": "Payment failed for 10.0.0.1: NullPointerException",
+        "stack_trace": None,
+        "request_id": "trace-1",
+        "metadata": {"region": "eu-west-1"},
+        "precomputed_features": {
+            "pattern_ip_address_count": 1.0,
+            "pattern_email_count": 0.0,
+            "pattern_url_count": 0.0,
+            "pattern_uuid_count": 0.0,
+            "pattern_number_count": 4.0,
+            "pattern_stack_trace_count": 0.0,
+            "pattern_exception_count": 1.0,
+            "message_entropy": 4.404827956051038,
+        },
+    },
+    {
+        # Only the fields log-collector guarantees, with the defaults the Java side fills in
+        "log_id": "5b0f7c9e-1f1a-4c55-9d67-0d6f2a0c1b11",
+        "timestamp": "2024-01-01T12:00:00.123456789",
+        "service_name": "auth-service",
+        "hostname": "unknown",
+        "log_level": "INFO",
+        "message": "",
+        "stack_trace": None,
+        "request_id": None,
+        "metadata": {},
+        "precomputed_features": {"message_entropy": 0.0},
+    },
+]
+
+
+def test_java_batch_request_validates_against_log_event():
+    events = TypeAdapter(List[LogEvent]).validate_python(JAVA_BATCH_REQUEST)
+
+    assert [event.log_id for event in events] == ["log-1", "5b0f7c9e-1f1a-4c55-9d67-0d6f2a0c1b11"]
+    assert events[0].service_name == "payment-service"
+    assert events[0].log_level == LogLevel.ERROR
+    assert events[0].request_id == "trace-1"
+    assert events[0].precomputed_features["pattern_ip_address_count"] == 1.0
+    assert events[1].hostname == "unknown"
+
+
+def test_anomaly_result_has_the_fields_the_java_side_reads():
+    result = AnomalyResult(
+        log_id="log-1",
+        is_anomaly=True,
+        anomaly_score=0.85,
+        confidence=0.7,
+        anomaly_type="error_spike",
+        anomaly_reasons=["Error level log"],
+        model_version="1.0.0",
+        processing_time_ms=3.2,
+        threshold_used=0.7,
+        metadata={"individual_scores": {"isolation_forest": 0.9}},
+    ).model_dump(mode="json")
+
+    # AiScoringEngine.mapToScoredLogEvent reads these keys
+    assert result["anomaly_score"] == 0.85
+    assert result["anomaly_type"] == "error_spike"
+    assert result["anomaly_reasons"] == ["Error level log"]
+    assert result["metadata"]["individual_scores"] == {"isolation_forest": 0.9}
+    assert "reasons" not in result
+    assert "feature_scores" not in result
+
+
+def _pattern_features(payload):
+    extractor = FeatureExtractor()
+    events = TypeAdapter(List[LogEvent]).validate_python(payload)
+    features, names = extractor._extract_pattern_features(extractor._log_events_to_dataframe(events))
+    return dict(zip(names, features.T))
+
+
+def test_java_features_match_the_python_computation():
+    without_precomputed = copy.deepcopy(JAVA_BATCH_REQUEST)
+    for event in without_precomputed:
+        event["precomputed_features"] = None
+
+    computed = _pattern_features(without_precomputed)
+
+    # LogFeatureExtractorTests pins the Java side to the same values; a drift here means the model sees
+    # different inputs per path
+    for name, value in JAVA_BATCH_REQUEST[0]["precomputed_features"].items():
+        assert computed[name][0] == pytest.approx(value), name
+
+
+def test_precomputed_features_are_used_and_missing_ones_computed():
+    payload = copy.deepcopy(JAVA_BATCH_REQUEST)
+    # Values the regexes cannot produce, so reading them back proves the precomputed path was taken
+    payload[0]["precomputed_features"]["pattern_ip_address_count"] = 42.0
+    payload[0]["precomputed_features"]["message_entropy"] = 0.5
+
+    features = _pattern_features(payload)
+
+    assert features["pattern_ip_address_count"][0] == 42.0
+    assert features["message_entropy"][0] == 0.5
+    # The second event only carries message_entropy; the pattern counts fall back to the regexes
+    assert features["message_entropy"][1] == 0.0
+    assert features["pattern_number_count"][1] == 0.0
@@ -1,6 +1,7 @@
 package com.incident.alert_manager_service.config;
 
 import com.incident.alert_manager_service.model.ScoredLogEvent;
+import com.incident.alert_manager_service.util.ScoredLogEventDeserializer;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
@@ -13,7 +14,6 @@ import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 
 import java.util.HashMap;
@@ -35,6 +35,9 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${kafka.listener.concurrency}")
+    private int concurrency;
+
     @Bean
     public ConsumerFactory<String, ScoredLogEvent> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -42,18 +45,15 @@ public class KafkaConfig {
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // anomaly-detector can produce logs.scored transactionally; skip output from aborted transactions
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         
         // Use ErrorHandlingDeserializer to handle deserialization errors
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
-        
-        // JsonDeserializer configuration
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.TYPE_MAPPINGS, "scoredLogEvent:com.incident.alert_manager_service.model.ScoredLogEvent");
-        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.incident.alert_manager_service.model.ScoredLogEvent");
+        // Decodes binary (content-type header) and JSON records alike, so anomaly-detector can switch formats
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, ScoredLogEventDeserializer.class);
 
         return new DefaultKafkaConsumerFactory<>(props);
     }
@@ -63,7 +63,8 @@ public class KafkaConfig {
         ConcurrentKafkaListenerContainerFactory<String, ScoredLogEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
-        factory.setConcurrency(3);
+        // Starting concurrency; ConsumerLagMonitor grows it up to the partition count under lag
+        factory.setConcurrency(concurrency);
         return factory;
     }
 
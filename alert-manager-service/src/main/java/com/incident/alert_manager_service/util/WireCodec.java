@@ -0,0 +1,172 @@
+package com.incident.alert_manager_service.util;
+
+import com.incident.alert_manager_service.model.ScoredLogEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Decoder for the compact binary ScoredLogEvent that anomaly-detector writes to logs.scored with wire.format=binary.
+// Fields are read in declaration order behind a presence bitmask: strings as varint length + UTF-8, the level
+// as its ordinal, timestamps as UTC epoch seconds + nanos, and metadata values with a one-byte type tag.
+// Adding a field means a new VERSION; readers reject versions they do not know. The encoder lives in
+// anomaly-detector-service; WireCodecTests in both modules pin the same encoded bytes, so the copies cannot drift
+// apart unnoticed.
+public final class WireCodec {
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String BINARY_CONTENT_TYPE = "application/x-incident-log-v1";
+
+    private static final byte VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_TRUE = 4;
+    private static final byte TAG_FALSE = 5;
+    private static final byte TAG_MAP = 6;
+    private static final byte TAG_LIST = 7;
+
+    private static final ScoredLogEvent.LogLevel[] LEVELS = ScoredLogEvent.LogLevel.values();
+
+    private WireCodec() {
+    }
+
+    public static ScoredLogEvent decodeScoredLogEvent(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        ScoredLogEvent.ScoredLogEventBuilder builder = readLogFields(in);
+
+        int present = readVarInt(in);
+        builder.isAnomaly(has(present, 0))
+                .anomalyScore(in.getDouble());
+        if (has(present, 1)) {
+            int size = readVarInt(in);
+            List<String> reasons = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                reasons.add(readString(in));
+            }
+            builder.anomalyReasons(reasons);
+        }
+        if (has(present, 2)) {
+            int size = readVarInt(in);
+            Map<String, Double> featureScores = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                featureScores.put(readString(in), in.getDouble());
+            }
+            builder.featureScores(featureScores);
+        }
+        if (has(present, 3)) {
+            builder.anomalyType(readString(in));
+        }
+        if (has(present, 4)) {
+            builder.scoredAt(readTimestamp(in));
+        }
+        return builder.build();
+    }
+
+    public static boolean isBinary(String contentType) {
+        return BINARY_CONTENT_TYPE.equals(contentType);
+    }
+
+    private static ScoredLogEvent.ScoredLogEventBuilder readLogFields(ByteBuffer in) {
+        checkVersion(in);
+        int present = readVarInt(in);
+        return ScoredLogEvent.builder()
+                .id(has(present, 0) ? readString(in) : null)
+                .serviceName(has(present, 1) ? readString(in) : null)
+                .hostname(has(present, 2) ? readString(in) : null)
+                .podName(has(present, 3) ? readString(in) : null)
+                .level(has(present, 4) ? LEVELS[in.get()] : null)
+                .message(has(present, 5) ? readString(in) : null)
+                .stackTrace(has(present, 6) ? readString(in) : null)
+                .timestamp(has(present, 7) ? readTimestamp(in) : null)
+                .metadata(has(present, 8) ? readMap(in) : null)
+                .traceId(has(present, 9) ? readString(in) : null)
+                .spanId(has(present, 10) ? readString(in) : null);
+    }
+
+    private static LocalDateTime readTimestamp(ByteBuffer in) {
+        long epochSecond = unZigZag(readVarLong(in));
+        return LocalDateTime.ofEpochSecond(epochSecond, readVarInt(in), ZoneOffset.UTC);
+    }
+
+    private static Map<String, Object> readMap(ByteBuffer in) {
+        int size = readVarInt(in);
+        Map<String, Object> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readValue(in));
+        }
+        return map;
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_STRING -> readString(in);
+            case TAG_LONG -> {
+                // Matches Jackson, which reads small integers as Integer
+                long value = unZigZag(readVarLong(in));
+                yield value == (int) value ? (Object) (int) value : (Object) value;
+            }
+            case TAG_DOUBLE -> in.getDouble();
+            case TAG_TRUE -> Boolean.TRUE;
+            case TAG_FALSE -> Boolean.FALSE;
+            case TAG_MAP -> readMap(in);
+            case TAG_LIST -> {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                yield list;
+            }
+            default -> throw new IllegalArgumentException("Unknown metadata value tag: " + tag);
+        };
+    }
+
+    private static void checkVersion(ByteBuffer in) {
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported wire format version: " + version);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static boolean has(int present, int field) {
+        return (present & (1 << field)) != 0;
+    }
+}
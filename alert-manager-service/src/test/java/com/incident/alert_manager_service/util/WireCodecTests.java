@@ -0,0 +1,71 @@
+package com.incident.alert_manager_service.util;
+
+import com.incident.alert_manager_service.model.ScoredLogEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WireCodecTests {
+
+	// Encoded by anomaly-detector-service's WireCodec; its WireCodecTests checks it still encodes to these bytes
+	private static final String GOLDEN_SCORED_LOG_EVENT =
+			"01b707056c6f672d310f7061796d656e742d73657276696365097061796d656e742d30042b5a61686c756e6720666568"
+			+ "6c67657363686c6167656e3a205a656974c3bc62657273636872656974756e6780a595d90c959aef3a0906726567696f"
+			+ "6e010965752d776573742d3107726574726965730206066f66667365740280c0b2cd3b076c6174656e6379033ff80000"
+			+ "0000000006636163686564040773616d706c65640506706172656e7400046874747006010673746174757302ee070474"
+			+ "616773070201016102030774726163652d311f3feb333333333333010f4572726f72206c6576656c206c6f6701106973"
+			+ "6f6c6174696f6e5f666f726573743feccccccccccccd0b6572726f725f7370696b6582a595d90c00";
+
+	@Test
+	void goldenBytesDecodeToTheScoredLogEvent() {
+		Map<String, Object> metadata = new LinkedHashMap<>();
+		metadata.put("region", "eu-west-1");
+		metadata.put("retries", 3);
+		metadata.put("offset", 8_000_000_000L);
+		metadata.put("latency", 1.5);
+		metadata.put("cached", true);
+		metadata.put("sampled", false);
+		metadata.put("parent", null);
+		metadata.put("http", Map.of("status", 503));
+		metadata.put("tags", List.of("a", -2));
+		ScoredLogEvent expected = ScoredLogEvent.builder()
+				.id("log-1")
+				.serviceName("payment-service")
+				.hostname("payment-0")
+				.level(ScoredLogEvent.LogLevel.ERROR)
+				.message("Zahlung fehlgeschlagen: Zeitüberschreitung")
+				.timestamp(LocalDateTime.of(2024, 1, 1, 12, 0, 0, 123_456_789))
+				.metadata(metadata)
+				.traceId("trace-1")
+				.anomalyScore(0.85)
+				.anomalyReasons(List.of("Error level log"))
+				.featureScores(Map.of("isolation_forest", 0.9))
+				.isAnomaly(true)
+				.anomalyType("error_spike")
+				.scoredAt(LocalDateTime.of(2024, 1, 1, 12, 0, 1))
+				.build();
+
+		ScoredLogEvent decoded = WireCodec.decodeScoredLogEvent(HexFormat.of().parseHex(GOLDEN_SCORED_LOG_EVENT));
+
+		assertThat(decoded).isEqualTo(expected);
+		assertThat(decoded.getMetadata().get("retries")).isInstanceOf(Integer.class);
+		assertThat(decoded.getMetadata().get("offset")).isInstanceOf(Long.class);
+	}
+
+	@Test
+	void unknownVersionIsRejected() {
+		byte[] data = HexFormat.of().parseHex(GOLDEN_SCORED_LOG_EVENT);
+		data[0] = 2;
+
+		assertThatThrownBy(() -> WireCodec.decodeScoredLogEvent(data))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("version");
+	}
+}
@@ -0,0 +1,181 @@
+package com.incident.anomaly_detector_service.config;
+
+import com.incident.anomaly_detector_service.service.AdaptiveConcurrencyLimiter;
+import com.incident.anomaly_detector_service.service.AiServiceClient;
+import com.incident.anomaly_detector_service.service.CircuitBreaker;
+import com.incident.anomaly_detector_service.service.HedgingPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@Slf4j
+public class AiServiceClientConfig {
+
+    // Comma-separated list of ai-service replicas
+    @Value("${ai.service.url}")
+    private List<String> aiServiceUrls;
+
+    @Value("${ai.service.endpoint}")
+    private String aiServiceEndpoint;
+
+    @Value("${ai.service.batch-endpoint}")
+    private String aiServiceBatchEndpoint;
+
+    @Value("${ai.service.timeout}")
+    private long timeoutMs;
+
+    @Value("${ai.service.connect-timeout}")
+    private int connectTimeoutMs;
+
+    @Value("${ai.service.retries}")
+    private int retries;
+
+    @Value("${ai.service.http2-enabled}")
+    private boolean http2Enabled;
+
+    @Value("${ai.service.pool.max-connections}")
+    private int maxConnections;
+
+    @Value("${ai.service.pool.pending-acquire-max-count}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${ai.service.pool.pending-acquire-timeout}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${ai.service.pool.max-idle-time}")
+    private long maxIdleTimeMs;
+
+    @Value("${ai.service.pool.max-life-time}")
+    private long maxLifeTimeMs;
+
+    @Value("${ai.service.limiter.initial-limit}")
+    private int limiterInitialLimit;
+
+    @Value("${ai.service.limiter.min-limit}")
+    private int limiterMinLimit;
+
+    @Value("${ai.service.limiter.max-limit}")
+    private int limiterMaxLimit;
+
+    @Value("${ai.service.limiter.backoff-ratio}")
+    private double limiterBackoffRatio;
+
+    @Value("${ai.service.limiter.latency-tolerance}")
+    private double limiterLatencyTolerance;
+
+    @Value("${ai.service.circuit-breaker.failure-rate-threshold}")
+    private double failureRateThreshold;
+
+    @Value("${ai.service.circuit-breaker.sliding-window-size}")
+    private int slidingWindowSize;
+
+    @Value("${ai.service.circuit-breaker.minimum-calls}")
+    private int minimumCalls;
+
+    @Value("${ai.service.circuit-breaker.open-duration-ms}")
+    private long openDurationMs;
+
+    @Value("${ai.service.circuit-breaker.half-open-probes}")
+    private int halfOpenProbes;
+
+    // true, false or auto: auto hedges only when there is more than one replica
+    @Value("${ai.service.hedging.enabled}")
+    private String hedgingEnabled;
+
+    @Value("${ai.service.hedging.percentile}")
+    private double hedgingPercentile;
+
+    @Value("${ai.service.hedging.min-delay-ms}")
+    private long hedgingMinDelayMs;
+
+    @Value("${ai.service.hedging.min-samples}")
+    private int hedgingMinSamples;
+
+    @Value("${ai.service.hedging.budget-ratio}")
+    private double hedgingBudgetRatio;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider aiServiceConnectionProvider() {
+        // Long-lived keep-alive pool shared by every AI request; metrics(true) publishes
+        // reactor.netty.connection.provider.* gauges (active, idle, pending) to Micrometer
+        return ConnectionProvider.builder("ai-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public AiServiceClient aiServiceClient(WebClient.Builder webClientBuilder,
+                                           ConnectionProvider aiServiceConnectionProvider,
+                                           MeterRegistry meterRegistry) {
+        HttpClient httpClient = HttpClient.create(aiServiceConnectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(timeoutMs));
+
+        if (http2Enabled) {
+            // Prior-knowledge-free h2c upgrade; falls back to HTTP/1.1 if the server declines
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        ReactorClientHttpConnector connector = new ReactorClientHttpConnector(httpClient);
+        List<WebClient> replicas = aiServiceUrls.stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(url -> webClientBuilder.clone()
+                        .baseUrl(url)
+                        .clientConnector(connector)
+                        .build())
+                .toList();
+
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                limiterInitialLimit, limiterMinLimit, limiterMaxLimit, limiterBackoffRatio, limiterLatencyTolerance);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("ai-service", failureRateThreshold,
+                slidingWindowSize, minimumCalls, openDurationMs, halfOpenProbes);
+
+        boolean hedging = isHedgingEnabled(hedgingEnabled, replicas.size());
+        log.info("Hedging of ai-service calls is {} ({} replicas, ai.service.hedging.enabled={})",
+                hedging ? "on" : "off", replicas.size(), hedgingEnabled);
+        if (hedging && replicas.size() < 2) {
+            log.warn("Hedging with a single ai-service replica sends the second copy to the same server");
+        }
+
+        // Single and batch calls have very different latencies, so each gets its own hedge delay and budget
+        HedgingPolicy detectHedging = new HedgingPolicy(hedging, hedgingPercentile,
+                Duration.ofMillis(hedgingMinDelayMs), hedgingMinSamples, hedgingBudgetRatio);
+        HedgingPolicy batchHedging = new HedgingPolicy(hedging, hedgingPercentile,
+                Duration.ofMillis(hedgingMinDelayMs), hedgingMinSamples, hedgingBudgetRatio);
+
+        return new AiServiceClient("ai-service", replicas, aiServiceEndpoint, aiServiceBatchEndpoint,
+                Duration.ofMillis(timeoutMs), retries, concurrencyLimiter, circuitBreaker,
+                detectHedging, batchHedging, meterRegistry);
+    }
+
+    // A hedge sent back to the only replica adds load to the server that is already slow, so auto needs a second one
+    static boolean isHedgingEnabled(String setting, int replicaCount) {
+        return switch (setting.trim().toLowerCase()) {
+            case "auto" -> replicaCount > 1;
+            case "true" -> true;
+            case "false" -> false;
+            default -> throw new IllegalStateException(
+                    "ai.service.hedging.enabled must be true, false or auto, not '" + setting + "'");
+        };
+    }
+}
@@ -1,11 +1,17 @@
 package com.incident.anomaly_detector_service.config;
 
 import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.util.LogEnvelopeInterceptor;
+import com.incident.anomaly_detector_service.util.LogEventDeserializer;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
@@ -13,11 +19,14 @@ import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.transaction.KafkaAwareTransactionManager;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -30,9 +39,39 @@ public class KafkaConfig {
     @Value("${kafka.topics.logs-scored}")
     private String logsScoredTopic;
 
+    @Value("${kafka.topics.shadow-disagreements}")
+    private String shadowDisagreementsTopic;
+
+    @Value("${kafka.topics.logs-raw-retry-prefix}")
+    private String logsRawRetryPrefix;
+
+    @Value("${kafka.topics.logs-raw-dlt}")
+    private String logsRawDeadLetterTopic;
+
+    @Value("${anomaly.retry.delays-ms}")
+    private List<Long> retryDelaysMs;
+
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${anomaly.consumer.mode}")
+    private String consumerMode;
+
+    @Value("${anomaly.consumer.concurrency}")
+    private int concurrency;
+
+    @Value("${anomaly.consumer.max-poll-records}")
+    private int maxPollRecords;
+
+    @Value("${anomaly.consumer.fetch-min-bytes}")
+    private int fetchMinBytes;
+
+    @Value("${anomaly.consumer.fetch-max-wait-ms}")
+    private int fetchMaxWaitMs;
+
+    @Value("${anomaly.consumer.max-partition-fetch-bytes}")
+    private int maxPartitionFetchBytes;
+
     @Bean
     public ConsumerFactory<String, LogEvent> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -40,41 +79,77 @@ public class KafkaConfig {
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        // Let the broker form micro-batches: a fetch returns once it holds fetch-min-bytes
+        // or fetch-max-wait-ms expires, capped at max-poll-records per poll
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, fetchMaxWaitMs);
+        props.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, maxPartitionFetchBytes);
+        // Retry topics are written inside listener transactions when transactions are enabled
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         
         // Use ErrorHandlingDeserializer to handle deserialization errors
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
-        
-        // JsonDeserializer configuration
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.TYPE_MAPPINGS, "logEvent:com.incident.anomaly_detector_service.model.LogEvent");
-        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.incident.anomaly_detector_service.model.LogEvent");
+        // Decodes binary (content-type header) and JSON records alike, so producers can switch formats independently
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, LogEventDeserializer.class);
+        // Envelope records from log-collector are unpacked into one record per event before listeners see them
+        props.put(ConsumerConfig.INTERCEPTOR_CLASSES_CONFIG, LogEnvelopeInterceptor.class.getName());
 
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, LogEvent> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, LogEvent> kafkaListenerContainerFactory(
+            ObjectProvider<KafkaAwareTransactionManager<?, ?>> transactionManager) {
+        // A record listener in a transaction commits offset + 1 for each record. Every event unpacked from one
+        // envelope carries the envelope's offset, so the first of them would commit past the rest; a crash or
+        // rollback after it would lose them. Retry topics only carry single events, so only logs.raw is affected.
+        if (transactionManager.getIfAvailable() != null && "record".equals(consumerMode)) {
+            throw new IllegalStateException("anomaly.consumer.mode=record cannot be combined with "
+                    + "anomaly.transactions.enabled=true because logs.raw envelope records would be committed after "
+                    + "their first event; use anomaly.consumer.mode=batch, which commits once per poll");
+        }
         ConcurrentKafkaListenerContainerFactory<String, LogEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
-        factory.setConcurrency(3);
+        transactionManager.ifAvailable(factory.getContainerProperties()::setKafkaAwareTransactionManager);
+        factory.setConcurrency(concurrency);
         return factory;
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, LogEvent> batchKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, LogEvent> batchKafkaListenerContainerFactory(
+            ObjectProvider<KafkaAwareTransactionManager<?, ?>> transactionManager) {
         ConcurrentKafkaListenerContainerFactory<String, LogEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // With a transaction manager each poll is one transaction: the scored output and the
+        // logs.raw offsets of the whole batch commit or abort together
+        transactionManager.ifAvailable(factory.getContainerProperties()::setKafkaAwareTransactionManager);
         factory.setBatchListener(true);
-        factory.setConcurrency(2);
+        factory.setConcurrency(concurrency);
         return factory;
     }
 
+    // Transactional mode: every producer gets a transactional id, so sends made on a listener thread
+    // join the container's transaction and the consumed offsets are committed through it
+    @Bean
+    @ConditionalOnProperty(name = "anomaly.transactions.enabled", havingValue = "true")
+    public DefaultKafkaProducerFactoryCustomizer transactionalProducerFactoryCustomizer(
+            @Value("${anomaly.transactions.id-prefix}") String transactionIdPrefix) {
+        return producerFactory -> producerFactory.setTransactionIdPrefix(transactionIdPrefix);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "anomaly.transactions.enabled", havingValue = "true")
+    public KafkaTransactionManager<String, ScoredLogEvent> kafkaTransactionManager(
+            ProducerFactory<String, ScoredLogEvent> producerFactory) {
+        return new KafkaTransactionManager<>(producerFactory);
+    }
+
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
@@ -90,6 +165,31 @@ public class KafkaConfig {
                 .build();
     }
 
+    @Bean
+    public KafkaAdmin.NewTopics failedLogTopics() {
+        List<NewTopic> topics = new ArrayList<>();
+        for (int stage = 0; stage < retryDelaysMs.size(); stage++) {
+            topics.add(TopicBuilder.name(logsRawRetryPrefix + "-" + stage)
+                    .partitions(3)
+                    .replicas(1)
+                    .build());
+        }
+        topics.add(TopicBuilder.name(logsRawDeadLetterTopic)
+                .partitions(1)
+                .replicas(1)
+                .build());
+        return new KafkaAdmin.NewTopics(topics.toArray(new NewTopic[0]));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "anomaly.shadow.enabled", havingValue = "true")
+    public NewTopic shadowDisagreementsTopic() {
+        return TopicBuilder.name(shadowDisagreementsTopic)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
     @Bean
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
@@ -0,0 +1,144 @@
+package com.incident.anomaly_detector_service.config;
+
+import com.incident.anomaly_detector_service.model.LogEnvelope;
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.model.ScoringBaseline;
+import com.incident.anomaly_detector_service.service.StatisticalScoringEngine;
+import com.incident.anomaly_detector_service.service.StreamScoringProcessor;
+import com.incident.anomaly_detector_service.util.LogEventDeserializer;
+import com.incident.anomaly_detector_service.util.WireFormatSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.errors.StreamsUncaughtExceptionHandler;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.state.Stores;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.kafka.config.StreamsBuilderFactoryBeanConfigurer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Alternative runtime (anomaly.consumer.mode=streams): a Kafka Streams topology from logs.raw to logs.scored.
+// Neither logs.raw listener starts in this mode; scaling comes from stream threads and input partitions.
+@Configuration
+@EnableKafkaStreams
+@ConditionalOnProperty(name = "anomaly.consumer.mode", havingValue = "streams")
+@Slf4j
+public class KafkaStreamsConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${kafka.topics.logs-raw}")
+    private String logsRawTopic;
+
+    @Value("${kafka.topics.logs-scored}")
+    private String logsScoredTopic;
+
+    @Value("${anomaly.streams.application-id}")
+    private String applicationId;
+
+    @Value("${anomaly.streams.threads}")
+    private int streamThreads;
+
+    @Value("${anomaly.streams.state-dir}")
+    private String stateDir;
+
+    @Value("${anomaly.streams.processing-guarantee}")
+    private String processingGuarantee;
+
+    @Value("${anomaly.streams.rate-window-seconds}")
+    private long rateWindowSeconds;
+
+    @Value("${anomaly.streams.rate-history-windows}")
+    private int rateHistoryWindows;
+
+    @Value("${anomaly.volume.spike-ratio}")
+    private double spikeRatio;
+
+    @Value("${anomaly.volume.min-count}")
+    private long minCount;
+
+    @Value("${spring.kafka.producer.properties.wire.format}")
+    private String wireFormat;
+
+    @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
+    public KafkaStreamsConfiguration kafkaStreamsConfiguration() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, streamThreads);
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, processingGuarantee);
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        return new KafkaStreamsConfiguration(props);
+    }
+
+    // Records that fail to score are skipped in StreamScoringProcessor; anything else that escapes a stream thread
+    // (a store or producer failure) replaces the thread instead of leaving the instance with fewer threads
+    @Bean
+    public StreamsBuilderFactoryBeanConfigurer uncaughtExceptionHandlerConfigurer() {
+        return factoryBean -> factoryBean.setStreamsUncaughtExceptionHandler(exception -> {
+            log.error("Kafka Streams thread failed, replacing it", exception);
+            return StreamsUncaughtExceptionHandler.StreamThreadExceptionResponse.REPLACE_THREAD;
+        });
+    }
+
+    @Bean
+    public KStream<String, LogEvent> anomalyScoringStream(StreamsBuilder streamsBuilder,
+                                                         StatisticalScoringEngine statisticalScoringEngine) {
+        Duration rateWindow = Duration.ofSeconds(rateWindowSeconds);
+
+        // Both stores are RocksDB-backed with changelog topics, so a restarted instance resumes its baselines
+        streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(StreamScoringProcessor.BASELINE_STORE),
+                Serdes.String(),
+                new JsonSerde<>(ScoringBaseline.class).noTypeInfo().ignoreTypeHeaders()));
+        streamsBuilder.addStateStore(Stores.windowStoreBuilder(
+                Stores.persistentWindowStore(StreamScoringProcessor.RATE_STORE,
+                        rateWindow.multipliedBy(rateHistoryWindows + 1L), rateWindow, false),
+                Serdes.String(),
+                Serdes.Long()));
+
+        // logs.raw is keyed by service name, so every service/host baseline and service rate is local to one task
+        KStream<String, LogEvent> logEvents = streamsBuilder.stream(logsRawTopic,
+                Consumed.with(Serdes.String(), Serdes.serdeFrom(new JsonSerializer<>(), new LogEventDeserializer())));
+
+        logEvents
+                .flatMapValues(LogEnvelope::unpack)
+                .processValues(() -> new StreamScoringProcessor(statisticalScoringEngine, rateWindow,
+                                rateHistoryWindows, spikeRatio, minCount),
+                        StreamScoringProcessor.BASELINE_STORE, StreamScoringProcessor.RATE_STORE)
+                .to(logsScoredTopic, Produced.with(Serdes.String(), scoredLogEventSerde()));
+
+        return logEvents;
+    }
+
+    // Same output format as the listener modes' producer, so wire.format=binary also applies here
+    private Serde<ScoredLogEvent> scoredLogEventSerde() {
+        WireFormatSerializer serializer = new WireFormatSerializer();
+        serializer.configure(Map.of(
+                WireFormatSerializer.WIRE_FORMAT_CONFIG, wireFormat,
+                JsonSerializer.ADD_TYPE_INFO_HEADERS, false), false);
+        @SuppressWarnings("unchecked")
+        Serializer<ScoredLogEvent> scoredSerializer = (Serializer<ScoredLogEvent>) (Serializer<?>) serializer;
+        return Serdes.serdeFrom(scoredSerializer, new JsonDeserializer<>(ScoredLogEvent.class, false));
+    }
+}
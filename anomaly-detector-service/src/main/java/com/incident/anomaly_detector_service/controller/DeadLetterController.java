@@ -0,0 +1,56 @@
+package com.incident.anomaly_detector_service.controller;
+
+import com.incident.anomaly_detector_service.service.DeadLetterReplayer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/anomaly/dead-letters")
+@RequiredArgsConstructor
+public class DeadLetterController {
+
+    private final DeadLetterReplayer deadLetterReplayer;
+
+    // The replay runs in the background; poll the returned job for progress
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replay(@RequestParam(defaultValue = "1000") int limit) {
+        return deadLetterReplayer.startReplay(limit)
+                .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .header("Location", "/api/anomaly/dead-letters/replay/" + job.getId())
+                        .body(toResponse(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of(
+                                "status", "busy",
+                                "message", "A dead-letter replay is already running"
+                        )));
+    }
+
+    @GetMapping("/replay/{jobId}")
+    public ResponseEntity<Map<String, Object>> replayStatus(@PathVariable String jobId) {
+        return deadLetterReplayer.getJob(jobId)
+                .map(job -> ResponseEntity.ok(toResponse(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static Map<String, Object> toResponse(DeadLetterReplayer.ReplayJob job) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", job.getId());
+        response.put("status", job.getStatus().name().toLowerCase());
+        response.put("replayed", job.getReplayed());
+        response.put("unreadable", job.getUnreadable());
+        response.put("limit", job.getLimit());
+        response.put("startedAt", job.getStartedAt().toString());
+        if (job.getFinishedAt() != null) {
+            response.put("finishedAt", job.getFinishedAt().toString());
+        }
+        if (job.getError() != null) {
+            response.put("error", job.getError());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,23 @@
+package com.incident.anomaly_detector_service.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+
+// Carrier for an envelope record (many LogEvents of one service packed by log-collector) between the value
+// deserializer, which must return a LogEvent, and LogEnvelopeInterceptor or the streams topology, which unpack it
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class LogEnvelope extends LogEvent {
+
+    private final List<LogEvent> events;
+
+    public LogEnvelope(List<LogEvent> events) {
+        this.events = events;
+    }
+
+    public static List<LogEvent> unpack(LogEvent logEvent) {
+        return logEvent instanceof LogEnvelope envelope ? envelope.getEvents() : List.of(logEvent);
+    }
+}
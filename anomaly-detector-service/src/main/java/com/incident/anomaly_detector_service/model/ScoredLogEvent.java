@@ -33,4 +33,20 @@ public class ScoredLogEvent {
     private boolean isAnomaly;
     private String anomalyType;
     private LocalDateTime scoredAt;
+
+    // Pre-populates the builder with the original log event fields; callers add the scoring results
+    public static ScoredLogEventBuilder fromLogEvent(LogEvent logEvent) {
+        return ScoredLogEvent.builder()
+                .id(logEvent.getId())
+                .serviceName(logEvent.getServiceName())
+                .hostname(logEvent.getHostname())
+                .podName(logEvent.getPodName())
+                .level(logEvent.getLevel())
+                .message(logEvent.getMessage())
+                .stackTrace(logEvent.getStackTrace())
+                .timestamp(logEvent.getTimestamp())
+                .metadata(logEvent.getMetadata())
+                .traceId(logEvent.getTraceId())
+                .spanId(logEvent.getSpanId());
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.incident.anomaly_detector_service.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fixed-size streaming statistics for one service/host key; updated in place per event
+@Data
+@NoArgsConstructor
+public class ScoringBaseline {
+    private long count;
+
+    // EWMA of the ERROR/FATAL indicator over a short and a long horizon
+    private double fastErrorRate;
+    private double slowErrorRate;
+
+    // EWMA mean and variance of log(1 + message length)
+    private double lengthMean;
+    private double lengthVariance;
+
+    // EWMA share of each LogEvent.LogLevel, indexed by ordinal
+    private double[] levelMix = new double[LogEvent.LogLevel.values().length];
+}
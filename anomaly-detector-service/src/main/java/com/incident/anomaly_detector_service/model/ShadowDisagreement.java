@@ -0,0 +1,29 @@
+package com.incident.anomaly_detector_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShadowDisagreement {
+    private String logEventId;
+    private String serviceName;
+    private LogEvent.LogLevel level;
+    private String message;
+
+    private String primaryEngine;
+    private double primaryScore;
+    private boolean primaryAnomaly;
+
+    private String shadowEngine;
+    private double shadowScore;
+    private boolean shadowAnomaly;
+
+    private LocalDateTime comparedAt;
+}
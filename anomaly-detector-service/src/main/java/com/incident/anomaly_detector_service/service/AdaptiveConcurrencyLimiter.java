@@ -0,0 +1,71 @@
+package com.incident.anomaly_detector_service.service;
+
+// AIMD concurrency limit driven by observed latency: the limit grows by one while latency stays
+// within tolerance of the best recent latency, and shrinks multiplicatively once it does not
+// or a call fails. Callers that cannot acquire a slot are shed instead of queued.
+public class AdaptiveConcurrencyLimiter {
+
+    // How quickly the latency baseline is allowed to drift upwards towards current latency
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private double limit;
+    private int inFlight;
+    private double baselineLatencyNanos = Double.NaN;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, double latencyTolerance) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onSuccess(long latencyNanos) {
+        inFlight--;
+
+        if (Double.isNaN(baselineLatencyNanos) || latencyNanos < baselineLatencyNanos) {
+            baselineLatencyNanos = latencyNanos;
+        } else {
+            baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) * BASELINE_DRIFT;
+        }
+
+        if (latencyNanos > baselineLatencyNanos * latencyTolerance) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= (int) limit) {
+            // Only grow while the current limit is actually being used
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public synchronized void onDropped() {
+        inFlight--;
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    // Releases a slot without learning from it, e.g. when the caller cancelled
+    public synchronized void onIgnored() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,148 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.util.LogFeatureExtractor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AiScoringEngine implements ScoringEngine {
+
+    public static final String ENGINE_NAME = "ai";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final AiServiceClient aiServiceClient;
+    private final TemplateScoreCache templateScoreCache;
+
+    @Value("${anomaly.detection.threshold}")
+    private double anomalyThreshold;
+
+    @Override
+    public Mono<List<ScoredLogEvent>> scoreBatch(List<LogEvent> logEvents) {
+        // Serve repeated message shapes from the cache and only send the misses to the AI service
+        List<Map<String, Object>> aiResponses = new ArrayList<>(logEvents.size());
+        List<LogEvent> misses = new ArrayList<>();
+        for (LogEvent logEvent : logEvents) {
+            Map<String, Object> cached = templateScoreCache.get(logEvent);
+            aiResponses.add(cached);
+            if (cached == null) {
+                misses.add(logEvent);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return Mono.just(mapToScoredLogEvents(logEvents, aiResponses));
+        }
+
+        List<Map<String, Object>> aiRequests = misses.stream()
+                .map(AiScoringEngine::buildAIRequest)
+                .toList();
+
+        return aiServiceClient.detectBatch(aiRequests)
+                .map(responses -> {
+                    // The batch endpoint answers positionally; a short answer cannot be matched back safely
+                    if (responses.size() != misses.size()) {
+                        throw new IllegalStateException(String.format(
+                                "AI service returned %d results for %d log events", responses.size(), misses.size()));
+                    }
+
+                    int next = 0;
+                    for (int i = 0; i < aiResponses.size(); i++) {
+                        if (aiResponses.get(i) == null) {
+                            Map<String, Object> response = responses.get(next++);
+                            templateScoreCache.put(logEvents.get(i), response);
+                            aiResponses.set(i, response);
+                        }
+                    }
+                    return mapToScoredLogEvents(logEvents, aiResponses);
+                });
+    }
+
+    @Override
+    public Mono<ScoredLogEvent> score(LogEvent logEvent) {
+        Map<String, Object> cached = templateScoreCache.get(logEvent);
+        if (cached != null) {
+            return Mono.just(mapToScoredLogEvent(logEvent, cached));
+        }
+
+        return aiServiceClient.detect(buildAIRequest(logEvent))
+                .doOnNext(response -> templateScoreCache.put(logEvent, response))
+                .map(response -> mapToScoredLogEvent(logEvent, response));
+    }
+
+    @Override
+    public String getEngineName() {
+        return ENGINE_NAME;
+    }
+
+    private List<ScoredLogEvent> mapToScoredLogEvents(List<LogEvent> logEvents, List<Map<String, Object>> aiResponses) {
+        List<ScoredLogEvent> scoredLogEvents = new ArrayList<>(logEvents.size());
+        for (int i = 0; i < logEvents.size(); i++) {
+            scoredLogEvents.add(mapToScoredLogEvent(logEvents.get(i), aiResponses.get(i)));
+        }
+        return scoredLogEvents;
+    }
+
+    // Field names follow the ai-service pydantic LogEvent; log_id, timestamp, service_name, hostname, log_level and
+    // message are required there, so missing values are filled rather than failing the whole batch with a 422
+    static Map<String, Object> buildAIRequest(LogEvent logEvent) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("log_id", logEvent.getId() != null ? logEvent.getId() : UUID.randomUUID().toString());
+        request.put("timestamp", (logEvent.getTimestamp() != null ? logEvent.getTimestamp() : LocalDateTime.now())
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        request.put("service_name", logEvent.getServiceName() != null ? logEvent.getServiceName() : UNKNOWN);
+        request.put("hostname", logEvent.getHostname() != null ? logEvent.getHostname() : UNKNOWN);
+        request.put("log_level", (logEvent.getLevel() != null ? logEvent.getLevel() : LogEvent.LogLevel.INFO).name());
+        request.put("message", logEvent.getMessage() != null ? logEvent.getMessage() : "");
+        request.put("stack_trace", logEvent.getStackTrace());
+        request.put("request_id", logEvent.getTraceId());
+        request.put("metadata", logEvent.getMetadata() != null ? logEvent.getMetadata() : Map.of());
+        // Pattern counts and entropy are computed here so ai-service can skip them
+        request.put("precomputed_features", LogFeatureExtractor.extract(logEvent.getMessage()));
+        return request;
+    }
+
+    // Reads an ai-service AnomalyResult; it has no per-feature scores, so the per-model scores it reports in
+    // metadata.individual_scores are carried as the feature scores
+    @SuppressWarnings("unchecked")
+    ScoredLogEvent mapToScoredLogEvent(LogEvent logEvent, Map<String, Object> aiResponse) {
+        double score = aiResponse.get("anomaly_score") instanceof Number number ? number.doubleValue() : 0.0;
+        List<String> reasons = aiResponse.get("anomaly_reasons") instanceof List<?> list
+                ? (List<String>) list : new ArrayList<>();
+        Map<String, Double> features = new HashMap<>();
+        if (aiResponse.get("metadata") instanceof Map<?, ?> metadata
+                && metadata.get("individual_scores") instanceof Map<?, ?> individualScores) {
+            individualScores.forEach((model, value) -> {
+                if (value instanceof Number number) {
+                    features.put(String.valueOf(model), number.doubleValue());
+                }
+            });
+        }
+        // anomaly_type is null for normal results
+        String anomalyType = aiResponse.get("anomaly_type") instanceof String type ? type : UNKNOWN;
+
+        return ScoredLogEvent.fromLogEvent(logEvent)
+                .anomalyScore(score)
+                .anomalyReasons(reasons)
+                .featureScores(features)
+                .isAnomaly(score > anomalyThreshold)
+                .anomalyType(anomalyType)
+                .scoredAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,238 @@
+package com.incident.anomaly_detector_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+// Long-lived client for the ai-service replicas, built once in AiServiceClientConfig
+// so every request reuses the same pooled keep-alive connections. Calls are spread round-robin
+// over the replicas, and a slow call is hedged with a second copy to the next replica.
+@Slf4j
+public class AiServiceClient {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> BATCH_RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private static final Duration RETRY_MIN_BACKOFF = Duration.ofMillis(100);
+
+    private final String name;
+    private final List<WebClient> replicas;
+    private final AtomicInteger replicaCursor = new AtomicInteger();
+    private final String endpoint;
+    private final String batchEndpoint;
+    private final Duration timeout;
+    private final int retries;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgingPolicy detectHedging;
+    private final HedgingPolicy batchHedging;
+    private final MeterRegistry meterRegistry;
+
+    public AiServiceClient(String name, List<WebClient> replicas, String endpoint, String batchEndpoint,
+                           Duration timeout, int retries, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                           CircuitBreaker circuitBreaker, HedgingPolicy detectHedging, HedgingPolicy batchHedging,
+                           MeterRegistry meterRegistry) {
+        this.name = name;
+        this.replicas = List.copyOf(replicas);
+        this.endpoint = endpoint;
+        this.batchEndpoint = batchEndpoint;
+        this.timeout = timeout;
+        this.retries = retries;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.detectHedging = detectHedging;
+        this.batchHedging = batchHedging;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("ai.client.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("client", name)
+                .register(meterRegistry);
+        Gauge.builder("ai.client.concurrency.in.flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("client", name)
+                .register(meterRegistry);
+        Gauge.builder("ai.client.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .tag("client", name)
+                .register(meterRegistry);
+    }
+
+    public Mono<Map<String, Object>> detect(Map<String, Object> request) {
+        return guarded(hedged(detectHedging, webClient -> webClient.post()
+                .uri(endpoint)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(RESPONSE_TYPE)));
+    }
+
+    public Mono<List<Map<String, Object>>> detectBatch(List<Map<String, Object>> requests) {
+        return guarded(hedged(batchHedging, webClient -> webClient.post()
+                .uri(batchEndpoint)
+                .bodyValue(requests)
+                .retrieve()
+                .bodyToMono(BATCH_RESPONSE_TYPE)));
+    }
+
+    // Each subscription (including each retry) picks its replicas afresh
+    private <T> Mono<T> hedged(HedgingPolicy hedging, Function<WebClient, Mono<T>> call) {
+        return Mono.defer(() -> {
+            hedging.onCall();
+            long startNanos = System.nanoTime();
+            Mono<T> primary = call.apply(nextReplica())
+                    .doOnNext(value -> hedging.recordLatency(System.nanoTime() - startNanos));
+
+            Duration delay = hedging.hedgeDelay();
+            if (delay == null) {
+                return primary;
+            }
+
+            AtomicBoolean hedgeIssued = new AtomicBoolean();
+            AtomicReference<Throwable> primaryFailure = new AtomicReference<>();
+            Sinks.One<Boolean> primaryFailed = Sinks.one();
+            Mono<T> hedge = Mono.delay(delay)
+                    // A primary that already failed is left to the retry policy rather than hedged
+                    .takeUntilOther(primaryFailed.asMono())
+                    .flatMap(tick -> {
+                        // The hedge is a real extra request, so it needs both a budget token and a limiter slot
+                        if (!hedging.tryAcquireHedge() || !concurrencyLimiter.tryAcquire()) {
+                            countHedge("skipped");
+                            return Mono.<T>empty();
+                        }
+                        hedgeIssued.set(true);
+                        countHedge("issued");
+                        long hedgeStartNanos = System.nanoTime();
+                        AtomicReference<Throwable> hedgeFailure = new AtomicReference<>();
+                        return call.apply(nextReplica())
+                                .doOnNext(value -> {
+                                    hedging.recordLatency(System.nanoTime() - hedgeStartNanos);
+                                    countHedge("won");
+                                })
+                                .doOnError(hedgeFailure::set)
+                                .doFinally(signal -> releaseHedgeSlot(signal, hedgeFailure.get(), hedgeStartNanos))
+                                // A failed hedge must not fail a primary that may still succeed
+                                .onErrorResume(e -> Mono.empty());
+                    });
+
+            // The first value wins and the other request is cancelled; an error only wins once both are done
+            return Mono.firstWithValue(
+                            primary
+                                    .doOnNext(value -> {
+                                        if (hedgeIssued.get()) {
+                                            countHedge("lost");
+                                        }
+                                    })
+                                    .doOnError(e -> {
+                                        primaryFailure.set(e);
+                                        primaryFailed.tryEmitValue(true);
+                                    }),
+                            hedge)
+                    // firstWithValue wraps the errors of all sources; the caller classifies the primary's own error
+                    .onErrorMap(NoSuchElementException.class,
+                            e -> primaryFailure.get() != null ? primaryFailure.get() : e);
+        });
+    }
+
+    // Same accounting as guarded() applies to the primary call
+    private void releaseHedgeSlot(SignalType signal, Throwable failure, long hedgeStartNanos) {
+        if (signal == SignalType.ON_COMPLETE) {
+            concurrencyLimiter.onSuccess(System.nanoTime() - hedgeStartNanos);
+        } else if (signal == SignalType.ON_ERROR && isTransient(failure)) {
+            concurrencyLimiter.onDropped();
+        } else {
+            concurrencyLimiter.onIgnored();
+        }
+    }
+
+    private WebClient nextReplica() {
+        return replicas.get(Math.floorMod(replicaCursor.getAndIncrement(), replicas.size()));
+    }
+
+    private void countHedge(String outcome) {
+        meterRegistry.counter("ai.client.hedges", "client", name, "outcome", outcome).increment();
+    }
+
+    private <T> Mono<T> guarded(Mono<T> call) {
+        // Permission is checked per subscription: rejected calls fail fast so the caller can use local scoring
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return reject("circuit-open");
+            }
+            if (!concurrencyLimiter.tryAcquire()) {
+                circuitBreaker.releasePermission();
+                return reject("concurrency-limit");
+            }
+
+            long startNanos = System.nanoTime();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            return withTimeoutAndRetry(call)
+                    .doOnError(failure::set)
+                    .doFinally(signal -> {
+                        switch (signal) {
+                            case ON_COMPLETE -> {
+                                concurrencyLimiter.onSuccess(System.nanoTime() - startNanos);
+                                circuitBreaker.onSuccess();
+                            }
+                            // A 4xx or an unreadable body says nothing about ai-service health
+                            case ON_ERROR -> {
+                                if (isTransient(failure.get())) {
+                                    concurrencyLimiter.onDropped();
+                                    circuitBreaker.onFailure();
+                                } else {
+                                    concurrencyLimiter.onIgnored();
+                                    circuitBreaker.releasePermission();
+                                }
+                            }
+                            default -> {
+                                concurrencyLimiter.onIgnored();
+                                circuitBreaker.releasePermission();
+                            }
+                        }
+                    });
+        });
+    }
+
+    private <T> Mono<T> reject(String reason) {
+        meterRegistry.counter("ai.client.rejected", "client", name, "reason", reason).increment();
+        return Mono.error(new RejectedExecutionException("AI service call rejected: " + reason));
+    }
+
+    private <T> Mono<T> withTimeoutAndRetry(Mono<T> call) {
+        return call
+                .timeout(timeout)
+                .retryWhen(Retry.backoff(retries, RETRY_MIN_BACKOFF)
+                        .filter(this::isTransient)
+                        .doBeforeRetry(signal -> log.debug("Retrying AI service call, attempt {}: {}",
+                                signal.totalRetries() + 1, signal.failure().toString()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private boolean isTransient(Throwable throwable) {
+        // Connection failures, timeouts and 5xx are transient and count against ai-service; 4xx means the
+        // request itself is wrong
+        return throwable instanceof WebClientRequestException
+                || throwable instanceof TimeoutException
+                || (throwable instanceof WebClientResponseException responseException
+                        && responseException.getStatusCode().is5xxServerError());
+    }
+}
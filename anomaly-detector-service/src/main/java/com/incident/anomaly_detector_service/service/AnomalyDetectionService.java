@@ -2,19 +2,22 @@ package com.incident.anomaly_detector_service.service;
 
 import com.incident.anomaly_detector_service.model.LogEvent;
 import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -22,133 +25,203 @@ import java.util.Map;
 public class AnomalyDetectionService {
 
     private final KafkaTemplate<String, ScoredLogEvent> kafkaTemplate;
-    private final WebClient.Builder webClientBuilder;
+    private final List<ScoringEngine> scoringEngines;
+    private final StatisticalScoringEngine statisticalScoringEngine;
+    private final ScoringTierPolicy scoringTierPolicy;
+    private final VolumeSpikeDetector volumeSpikeDetector;
+    private final TemplateNoveltyIndex templateNoveltyIndex;
+    private final ShadowScoringService shadowScoringService;
+    private final RedeliveryDeduplicator redeliveryDeduplicator;
+    private final TraceAggregator traceAggregator;
 
     @Value("${kafka.topics.logs-scored}")
     private String logsScoredTopic;
 
-    @Value("${ai.service.url}")
-    private String aiServiceUrl;
+    @Value("${anomaly.detection.engine}")
+    private String primaryEngineName;
 
-    @Value("${ai.service.endpoint}")
-    private String aiServiceEndpoint;
+    @Value("${anomaly.detection.batch-size}")
+    private int batchSize;
 
-    @Value("${anomaly.detection.threshold}")
-    private double anomalyThreshold;
+    @Value("${anomaly.detection.max-in-flight}")
+    private int maxInFlight;
+
+    private ScoringEngine primaryEngine;
+
+    @PostConstruct
+    void selectPrimaryEngine() {
+        primaryEngine = scoringEngines.stream()
+                .filter(engine -> engine.getEngineName().equals(primaryEngineName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown scoring engine: " + primaryEngineName));
+        log.info("Using '{}' as the primary scoring engine", primaryEngine.getEngineName());
+    }
 
     public void processLogEvent(LogEvent logEvent) {
+        // Seen again by this instance after its scored event reached logs.scored
+        if (redeliveryDeduplicator.alreadyScored(logEvent)) {
+            return;
+        }
+
+        CompletableFuture<SendResult<String, ScoredLogEvent>> spikeSend = volumeSpikeDetector.record(logEvent)
+                .map(this::sendScoredEvent)
+                .orElse(CompletableFuture.completedFuture(null));
+
+        // Score the event; primary engine failures fall back to the statistical engine
+        ScoredLogEvent scoredLogEvent = detectAnomaly(logEvent).block();
+        templateNoveltyIndex.tag(scoredLogEvent);
+
+        CompletableFuture<SendResult<String, ScoredLogEvent>> scoredSend = traceAggregator.absorb(scoredLogEvent)
+                ? CompletableFuture.completedFuture(null)
+                : sendScoredEvent(scoredLogEvent);
+
+        // Wait for the broker so the caller only commits the offset once the event is on logs.scored
+        CompletableFuture.allOf(spikeSend, scoredSend).join();
+        redeliveryDeduplicator.markScored(List.of(logEvent));
+    }
+
+    // Returns the events whose scored event did not reach logs.scored, so the caller can re-route just those
+    public List<LogEvent> processLogEventsBatch(List<LogEvent> polledLogEvents) {
+        // Drop events this instance has already scored and published before any of them reaches an engine
+        List<LogEvent> logEvents = redeliveryDeduplicator.withoutAlreadyScored(polledLogEvents);
+
+        // Chunks of batch-size are scored concurrently, up to max-in-flight AI requests at once,
+        // but flatMapSequential emits them in poll order so sends stay ordered per key
+        Flux<ScoredLogEvent> scoredLogEvents = Flux.fromIterable(logEvents)
+                .buffer(batchSize)
+                .flatMapSequential(this::detectAnomaliesBatch, maxInFlight)
+                .flatMapIterable(Function.identity());
+
+        List<CompletableFuture<?>> spikeSends = new ArrayList<>();
+        for (LogEvent logEvent : logEvents) {
+            volumeSpikeDetector.record(logEvent).ifPresent(spike -> spikeSends.add(sendScoredEvent(spike)));
+        }
+
+        // One send per event, in the same order as logEvents
+        List<CompletableFuture<?>> eventSends = new ArrayList<>(logEvents.size());
         try {
-            // Call AI service for anomaly detection
-            ScoredLogEvent scoredLogEvent = detectAnomaly(logEvent).block();
-            
-            if (scoredLogEvent != null) {
-                // Send scored event to Kafka
-                kafkaTemplate.send(logsScoredTopic, logEvent.getServiceName(), scoredLogEvent)
-                    .whenComplete((result, ex) -> {
-                        if (ex == null) {
-                            log.debug("Sent scored log event: {} with score: {}", 
-                                scoredLogEvent.getId(), scoredLogEvent.getAnomalyScore());
-                        } else {
-                            log.error("Failed to send scored log event: {}", scoredLogEvent.getId(), ex);
-                        }
-                    });
+            for (ScoredLogEvent scoredLogEvent : scoredLogEvents.toIterable()) {
+                templateNoveltyIndex.tag(scoredLogEvent);
+                eventSends.add(traceAggregator.absorb(scoredLogEvent)
+                        ? CompletableFuture.completedFuture(null)
+                        : sendScoredEvent(scoredLogEvent));
             }
-        } catch (Exception e) {
-            log.error("Error processing log event: {}", logEvent.getId(), e);
-            // Send with default score in case of AI service failure
-            sendDefaultScoredEvent(logEvent);
+        } catch (RuntimeException e) {
+            // Scoring stopped part-way; the events already sent stay sent and the rest are reported as failed
+            log.error("Scoring stopped after {} of {} log events", eventSends.size(), logEvents.size(), e);
         }
-    }
 
-    public void processLogEventsBatch(List<LogEvent> logEvents) {
-        logEvents.forEach(this::processLogEvent);
+        // Wait for the broker so the caller only commits the batch once every event is on logs.scored or re-routed.
+        // Spike events are aggregates with no single source event to re-route; their failures are only logged.
+        List<CompletableFuture<?>> allSends = new ArrayList<>(spikeSends);
+        allSends.addAll(eventSends);
+        CompletableFuture.allOf(allSends.toArray(new CompletableFuture[0]))
+                .exceptionally(ex -> null)
+                .join();
+
+        List<LogEvent> sent = new ArrayList<>(eventSends.size());
+        List<LogEvent> failed = new ArrayList<>();
+        for (int i = 0; i < logEvents.size(); i++) {
+            if (i < eventSends.size() && !eventSends.get(i).isCompletedExceptionally()) {
+                sent.add(logEvents.get(i));
+            } else {
+                failed.add(logEvents.get(i));
+            }
+        }
+        redeliveryDeduplicator.markScored(sent);
+        return failed;
     }
 
     private Mono<ScoredLogEvent> detectAnomaly(LogEvent logEvent) {
-        WebClient webClient = webClientBuilder
-                .baseUrl(aiServiceUrl)
-                .build();
-
-        Map<String, Object> aiRequest = buildAIRequest(logEvent);
-
-        return webClient.post()
-                .uri(aiServiceEndpoint)
-                .bodyValue(aiRequest)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> mapToScoredLogEvent(logEvent, response))
-                .onErrorReturn(createDefaultScoredLogEvent(logEvent));
+        if (primaryEngine == statisticalScoringEngine) {
+            return detectAnomaliesBatch(List.of(logEvent)).map(scored -> scored.get(0));
+        }
+        if (scoringTierPolicy.tierFor(logEvent) == ScoringTierPolicy.Tier.LOCAL) {
+            return Mono.just(statisticalScoringEngine.evaluate(logEvent));
+        }
+
+        long start = System.nanoTime();
+        return primaryEngine.score(logEvent)
+                .doOnNext(scored -> {
+                    statisticalScoringEngine.observe(logEvent);
+                    shadowScoringService.compare(primaryEngine, List.of(logEvent), List.of(scored),
+                            System.nanoTime() - start);
+                })
+                .onErrorResume(e -> {
+                    logFallback(e, "log event " + logEvent.getId());
+                    return statisticalScoringEngine.score(logEvent);
+                });
     }
 
-    private Map<String, Object> buildAIRequest(LogEvent logEvent) {
-        Map<String, Object> request = new HashMap<>();
-        request.put("id", logEvent.getId());
-        request.put("service", logEvent.getServiceName());
-        request.put("level", logEvent.getLevel().toString());
-        request.put("message", logEvent.getMessage());
-        request.put("timestamp", logEvent.getTimestamp().toString());
-        request.put("metadata", logEvent.getMetadata());
-        return request;
+    private Mono<List<ScoredLogEvent>> detectAnomaliesBatch(List<LogEvent> logEvents) {
+        if (primaryEngine == statisticalScoringEngine) {
+            long start = System.nanoTime();
+            return statisticalScoringEngine.scoreBatch(logEvents)
+                    .doOnNext(scored -> shadowScoringService.compare(primaryEngine, logEvents, scored,
+                            System.nanoTime() - start));
+        }
+
+        // Cheap local checks run first; only suspicious events are escalated to the primary engine
+        ScoredLogEvent[] scoredLogEvents = new ScoredLogEvent[logEvents.size()];
+        List<LogEvent> escalated = new ArrayList<>();
+        List<Integer> escalatedPositions = new ArrayList<>();
+        for (int i = 0; i < logEvents.size(); i++) {
+            LogEvent logEvent = logEvents.get(i);
+            if (scoringTierPolicy.tierFor(logEvent) == ScoringTierPolicy.Tier.LOCAL) {
+                scoredLogEvents[i] = statisticalScoringEngine.evaluate(logEvent);
+            } else {
+                escalated.add(logEvent);
+                escalatedPositions.add(i);
+            }
+        }
+
+        if (escalated.isEmpty()) {
+            return Mono.just(Arrays.asList(scoredLogEvents));
+        }
+
+        return scoreWithPrimaryEngine(escalated)
+                .map(escalatedScores -> {
+                    for (int i = 0; i < escalatedScores.size(); i++) {
+                        scoredLogEvents[escalatedPositions.get(i)] = escalatedScores.get(i);
+                    }
+                    return Arrays.asList(scoredLogEvents);
+                });
     }
 
-    private ScoredLogEvent mapToScoredLogEvent(LogEvent logEvent, Map<String, Object> aiResponse) {
-        double score = ((Number) aiResponse.getOrDefault("anomaly_score", 0.0)).doubleValue();
-        List<String> reasons = (List<String>) aiResponse.getOrDefault("reasons", new ArrayList<>());
-        Map<String, Double> features = (Map<String, Double>) aiResponse.getOrDefault("feature_scores", new HashMap<>());
-        String anomalyType = (String) aiResponse.getOrDefault("anomaly_type", "unknown");
-
-        return ScoredLogEvent.builder()
-                .id(logEvent.getId())
-                .serviceName(logEvent.getServiceName())
-                .hostname(logEvent.getHostname())
-                .podName(logEvent.getPodName())
-                .level(logEvent.getLevel())
-                .message(logEvent.getMessage())
-                .stackTrace(logEvent.getStackTrace())
-                .timestamp(logEvent.getTimestamp())
-                .metadata(logEvent.getMetadata())
-                .traceId(logEvent.getTraceId())
-                .spanId(logEvent.getSpanId())
-                .anomalyScore(score)
-                .anomalyReasons(reasons)
-                .featureScores(features)
-                .isAnomaly(score > anomalyThreshold)
-                .anomalyType(anomalyType)
-                .scoredAt(LocalDateTime.now())
-                .build();
+    private Mono<List<ScoredLogEvent>> scoreWithPrimaryEngine(List<LogEvent> logEvents) {
+        long start = System.nanoTime();
+        return primaryEngine.scoreBatch(logEvents)
+                .doOnNext(scored -> {
+                    // Keep the fallback baselines warm while the primary engine is healthy
+                    logEvents.forEach(statisticalScoringEngine::observe);
+                    shadowScoringService.compare(primaryEngine, logEvents, scored, System.nanoTime() - start);
+                })
+                .onErrorResume(e -> {
+                    logFallback(e, "a batch of " + logEvents.size() + " log events");
+                    return statisticalScoringEngine.scoreBatch(logEvents);
+                });
     }
 
-    private ScoredLogEvent createDefaultScoredLogEvent(LogEvent logEvent) {
-        // Default scoring based on log level
-        double defaultScore = switch (logEvent.getLevel()) {
-            case ERROR, FATAL -> 0.7;
-            case WARN -> 0.4;
-            default -> 0.1;
-        };
-
-        return ScoredLogEvent.builder()
-                .id(logEvent.getId())
-                .serviceName(logEvent.getServiceName())
-                .hostname(logEvent.getHostname())
-                .podName(logEvent.getPodName())
-                .level(logEvent.getLevel())
-                .message(logEvent.getMessage())
-                .stackTrace(logEvent.getStackTrace())
-                .timestamp(logEvent.getTimestamp())
-                .metadata(logEvent.getMetadata())
-                .traceId(logEvent.getTraceId())
-                .spanId(logEvent.getSpanId())
-                .anomalyScore(defaultScore)
-                .anomalyReasons(List.of("AI service unavailable, default scoring applied"))
-                .featureScores(new HashMap<>())
-                .isAnomaly(defaultScore > anomalyThreshold)
-                .anomalyType("default")
-                .scoredAt(LocalDateTime.now())
-                .build();
+    private void logFallback(Throwable e, String subject) {
+        if (e instanceof RejectedExecutionException) {
+            // Load shedding by the limiter or an open circuit is expected; it is visible in ai.client.rejected
+            log.debug("Scoring engine '{}' shed {}, using statistical fallback: {}",
+                    primaryEngine.getEngineName(), subject, e.getMessage());
+        } else {
+            log.warn("Scoring engine '{}' failed for {}, using statistical fallback",
+                    primaryEngine.getEngineName(), subject, e);
+        }
     }
 
-    private void sendDefaultScoredEvent(LogEvent logEvent) {
-        ScoredLogEvent defaultScored = createDefaultScoredLogEvent(logEvent);
-        kafkaTemplate.send(logsScoredTopic, logEvent.getServiceName(), defaultScored);
+    private CompletableFuture<SendResult<String, ScoredLogEvent>> sendScoredEvent(ScoredLogEvent scoredLogEvent) {
+        return kafkaTemplate.send(logsScoredTopic, scoredLogEvent.getServiceName(), scoredLogEvent)
+            .whenComplete((result, ex) -> {
+                if (ex == null) {
+                    log.debug("Sent scored log event: {} with score: {}",
+                        scoredLogEvent.getId(), scoredLogEvent.getAnomalyScore());
+                } else {
+                    log.error("Failed to send scored log event: {}", scoredLogEvent.getId(), ex);
+                }
+            });
     }
-} 
\ No newline at end of file
+}
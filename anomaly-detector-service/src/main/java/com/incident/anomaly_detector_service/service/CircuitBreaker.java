@@ -0,0 +1,118 @@
+package com.incident.anomaly_detector_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Count-based circuit breaker: opens when the failure rate over the last sliding-window-size calls
+// crosses the threshold, rejects calls while open, then lets a few probes through to test recovery
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationMillis;
+    private final int halfOpenProbes;
+
+    // Ring buffer of the most recent outcomes while closed
+    private final boolean[] outcomes;
+    private int recordedCalls;
+    private int failures;
+    private int nextSlot;
+
+    private State state = State.CLOSED;
+    private long openedAtMillis;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                          long openDurationMillis, int halfOpenProbes) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.outcomes = new boolean[slidingWindowSize];
+        this.minimumCalls = minimumCalls;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAtMillis < openDurationMillis) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= halfOpenProbes) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    // Gives back a permission that was acquired but never used for a call
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (++probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recordedCalls >= minimumCalls && (double) failures / recordedCalls >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (recordedCalls == outcomes.length) {
+            if (outcomes[nextSlot]) {
+                failures--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        outcomes[nextSlot] = failed;
+        if (failed) {
+            failures++;
+        }
+        nextSlot = (nextSlot + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("Circuit breaker '{}' transitioning from {} to {}", name, state, newState);
+        state = newState;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAtMillis = System.currentTimeMillis();
+        } else if (newState == State.CLOSED) {
+            recordedCalls = 0;
+            failures = 0;
+            nextSlot = 0;
+        }
+    }
+}
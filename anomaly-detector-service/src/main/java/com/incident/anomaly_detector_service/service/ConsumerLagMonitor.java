@@ -0,0 +1,246 @@
+package com.incident.anomaly_detector_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Measures consumer lag and throughput per listener and resizes listener concurrency to drain the lag within
+// target-drain-seconds, between the configured concurrency and the number of partitions (or max-concurrency).
+// Defaults for kafka.lag-monitor.* live here rather than in each service's application.yml. The same class is
+// in anomaly-detector, alert-manager, dashboard-service and incident-tracker, which build separately; a change
+// here goes into all four.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConsumerLagMonitor {
+
+    private static final long ADMIN_TIMEOUT_SECONDS = 10;
+
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    private final MeterRegistry meterRegistry;
+
+    // Lag and concurrency gauges are always exported; enabled only controls resizing
+    @Value("${kafka.lag-monitor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.lag-monitor.target-drain-seconds:60}")
+    private double targetDrainSeconds;
+
+    // At or below this lag listeners shrink back towards the configured concurrency
+    @Value("${kafka.lag-monitor.scale-down-lag:1000}")
+    private long scaleDownLag;
+
+    @Value("${kafka.lag-monitor.cooldown-ms:120000}")
+    private long cooldownMs;
+
+    // Where a partition with no committed offset is counted from: 'earliest' or 'latest', matching where the
+    // group's auto.offset.reset would start it, or 'skip' to leave it out until the group commits
+    @Value("${kafka.lag-monitor.uncommitted-offset:${spring.kafka.consumer.auto-offset-reset:latest}}")
+    private String uncommittedOffset;
+
+    // Upper bound on consumers per listener; 0 allows one per partition
+    @Value("${kafka.lag-monitor.max-concurrency:0}")
+    private int maxConcurrency;
+
+    private final Map<String, ListenerState> listeners = new ConcurrentHashMap<>();
+    private AdminClient adminClient;
+
+    @PostConstruct
+    void initialize() {
+        if (!List.of("earliest", "latest", "skip").contains(uncommittedOffset)) {
+            throw new IllegalStateException("Unknown kafka.lag-monitor.uncommitted-offset: " + uncommittedOffset);
+        }
+        adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        adminClient.close(Duration.ofSeconds(5));
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.lag-monitor.interval-ms:30000}")
+    void adjustConcurrency() {
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getListenerContainers()) {
+            if (container instanceof ConcurrentMessageListenerContainer<?, ?> concurrentContainer
+                    && container.isRunning()) {
+                try {
+                    evaluate(concurrentContainer);
+                } catch (Exception e) {
+                    log.warn("Failed to evaluate consumer lag for listener {}", container.getListenerId(), e);
+                }
+            }
+        }
+    }
+
+    private void evaluate(ConcurrentMessageListenerContainer<?, ?> container) throws Exception {
+        String[] topics = container.getContainerProperties().getTopics();
+        if (topics == null || topics.length == 0 || container.getGroupId() == null) {
+            return;
+        }
+        ListenerState state = listeners.computeIfAbsent(container.getListenerId(),
+                listenerId -> register(listenerId, container.getConcurrency()));
+
+        Map<TopicPartition, Long> endOffsets = endOffsets(topics);
+        Map<TopicPartition, OffsetAndMetadata> committed = adminClient
+                .listConsumerGroupOffsets(container.getGroupId())
+                .partitionsToOffsetAndMetadata()
+                .get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Map<TopicPartition, Long> uncommittedStart = uncommittedStartOffsets(endOffsets, committed);
+        long lag = 0;
+        long position = 0;
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            OffsetAndMetadata offset = committed.get(entry.getKey());
+            Long consumed = offset != null ? Long.valueOf(offset.offset()) : uncommittedStart.get(entry.getKey());
+            if (consumed == null) {
+                continue;
+            }
+            lag += Math.max(0, entry.getValue() - consumed);
+            position += consumed;
+        }
+
+        long now = System.nanoTime();
+        double throughput = state.throughput(position, now);
+        state.lag.set(lag);
+        state.concurrency.set(container.getConcurrency());
+        if (!enabled || Double.isNaN(throughput) || now - state.lastChangeNanos < TimeUnit.MILLISECONDS.toNanos(cooldownMs)) {
+            return;
+        }
+
+        int maxConsumers = maxConcurrency > 0 ? Math.min(maxConcurrency, endOffsets.size()) : endOffsets.size();
+        int current = container.getConcurrency();
+        int target = current;
+        double drainSeconds = throughput > 0 ? lag / throughput : Double.POSITIVE_INFINITY;
+        if (lag > scaleDownLag && drainSeconds > targetDrainSeconds) {
+            // Throughput scales roughly with consumers until every partition has its own; at most double per step
+            double needed = Double.isInfinite(drainSeconds) ? current * 2.0 : current * drainSeconds / targetDrainSeconds;
+            target = (int) Math.min(Math.min(Math.ceil(needed), current * 2L), maxConsumers);
+        } else if (lag <= scaleDownLag) {
+            target = Math.max(state.minConcurrency, current - 1);
+        }
+
+        if (target != current) {
+            resize(container, state, current, target, lag, now);
+        }
+    }
+
+    private void resize(ConcurrentMessageListenerContainer<?, ?> container, ListenerState state,
+                        int current, int target, long lag, long now) {
+        log.info("Resizing listener {} from {} to {} consumers (lag: {})",
+                container.getListenerId(), current, target, lag);
+        state.lastChangeNanos = now;
+        // Concurrency only takes effect on start, so the container is restarted; the group rebalances once
+        container.stop(() -> {
+            container.setConcurrency(target);
+            container.start();
+            state.concurrency.set(target);
+        });
+    }
+
+    private Map<TopicPartition, Long> endOffsets(String[] topics) throws Exception {
+        Map<String, TopicDescription> descriptions = adminClient.describeTopics(Arrays.asList(topics))
+                .allTopicNames()
+                .get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        List<TopicPartition> partitions = new ArrayList<>();
+        descriptions.values().forEach(description -> description.partitions().forEach(partition ->
+                partitions.add(new TopicPartition(description.name(), partition.partition()))));
+        return listOffsets(partitions, OffsetSpec.latest());
+    }
+
+    // Start offsets of the partitions the group has not committed yet; partitions left out are skipped
+    private Map<TopicPartition, Long> uncommittedStartOffsets(Map<TopicPartition, Long> endOffsets,
+                                                              Map<TopicPartition, OffsetAndMetadata> committed)
+            throws Exception {
+        List<TopicPartition> uncommitted = endOffsets.keySet().stream()
+                .filter(partition -> committed.get(partition) == null)
+                .toList();
+        if (uncommitted.isEmpty() || uncommittedOffset.equals("skip")) {
+            return Map.of();
+        }
+        if (uncommittedOffset.equals("latest")) {
+            Map<TopicPartition, Long> startOffsets = new HashMap<>();
+            uncommitted.forEach(partition -> startOffsets.put(partition, endOffsets.get(partition)));
+            return startOffsets;
+        }
+        return listOffsets(uncommitted, OffsetSpec.earliest());
+    }
+
+    private Map<TopicPartition, Long> listOffsets(List<TopicPartition> partitions, OffsetSpec spec) throws Exception {
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        partitions.forEach(partition -> request.put(partition, spec));
+
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> result = adminClient.listOffsets(request)
+                .all()
+                .get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        result.forEach((partition, info) -> offsets.put(partition, info.offset()));
+        return offsets;
+    }
+
+    private ListenerState register(String listenerId, int initialConcurrency) {
+        ListenerState state = new ListenerState(initialConcurrency);
+        state.concurrency.set(initialConcurrency);
+        Gauge.builder("kafka.consumer.lag", state.lag, AtomicLong::get)
+                .description("Records behind the log end offset, summed over the listener's partitions")
+                .tag("listener", listenerId)
+                .register(meterRegistry);
+        Gauge.builder("kafka.consumer.concurrency", state.concurrency, AtomicInteger::get)
+                .tag("listener", listenerId)
+                .register(meterRegistry);
+        return state;
+    }
+
+    private static final class ListenerState {
+        private final int minConcurrency;
+        private final AtomicLong lag = new AtomicLong();
+        private final AtomicInteger concurrency = new AtomicInteger();
+        private long lastPosition = -1;
+        private long lastSampleNanos;
+        // Counts startup as a change so the first resize waits one cooldown
+        private long lastChangeNanos = System.nanoTime();
+
+        private ListenerState(int minConcurrency) {
+            this.minConcurrency = minConcurrency;
+        }
+
+        // Committed records per second since the previous sample, or NaN when there is none to compare with
+        private double throughput(long position, long now) {
+            double throughput = lastPosition < 0 || position < lastPosition
+                    ? Double.NaN
+                    : (position - lastPosition) / ((now - lastSampleNanos) / 1e9);
+            lastPosition = position;
+            lastSampleNanos = now;
+            return throughput;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Re-injects dead-lettered log events into logs.raw at a bounded rate on a background thread, committing each one
+// as it goes so an interrupted replay resumes where it stopped. A replay covers the dead-letter topic up to its end
+// offsets when the replay started; events dead-lettered while it runs wait for the next replay.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterReplayer {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, LogEvent> consumerFactory;
+    private final KafkaTemplate<String, LogEvent> kafkaTemplate;
+    private final FailedLogRouter failedLogRouter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.topics.logs-raw}")
+    private String logsRawTopic;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    @Value("${anomaly.retry.replay-rate-per-second}")
+    private double replayRatePerSecond;
+
+    // Only one replay at a time, otherwise the configured rate would multiply
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "dlt-replay"));
+    private final AtomicReference<ReplayJob> currentJob = new AtomicReference<>();
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    public static final class ReplayJob {
+        private final String id = UUID.randomUUID().toString();
+        private final int limit;
+        private final Instant startedAt = Instant.now();
+        private final AtomicInteger replayed = new AtomicInteger();
+        private final AtomicInteger unreadable = new AtomicInteger();
+        private volatile Status status = Status.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private ReplayJob(int limit) {
+            this.limit = limit;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+
+        public int getReplayed() {
+            return replayed.get();
+        }
+
+        // Records whose value could not be deserialized; they are skipped and their offsets logged
+        public int getUnreadable() {
+            return unreadable.get();
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Instant getFinishedAt() {
+            return finishedAt;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        private void finish(Status status, String error) {
+            this.error = error;
+            this.finishedAt = Instant.now();
+            this.status = status;
+        }
+    }
+
+    // Starts a replay in the background; empty if another replay is still running
+    public Optional<ReplayJob> startReplay(int limit) {
+        ReplayJob job = new ReplayJob(limit);
+        ReplayJob previous = currentJob.get();
+        if ((previous != null && previous.getStatus() == Status.RUNNING) || !currentJob.compareAndSet(previous, job)) {
+            return Optional.empty();
+        }
+        replayExecutor.execute(() -> run(job));
+        return Optional.of(job);
+    }
+
+    // Only the latest replay is kept
+    public Optional<ReplayJob> getJob(String jobId) {
+        ReplayJob job = currentJob.get();
+        return job != null && job.getId().equals(jobId) ? Optional.of(job) : Optional.empty();
+    }
+
+    @PreDestroy
+    void stop() {
+        // Interrupts the park between sends; the offset of every replayed event is already committed
+        replayExecutor.shutdownNow();
+    }
+
+    private void run(ReplayJob job) {
+        try {
+            replay(job);
+            if (job.getUnreadable() > 0) {
+                job.finish(Status.FAILED, job.getUnreadable() + " dead-lettered records could not be deserialized "
+                        + "and were skipped; see the log for their offsets");
+                log.warn("Replayed {} dead-lettered log events into {}, skipped {} unreadable records",
+                        job.getReplayed(), logsRawTopic, job.getUnreadable());
+                return;
+            }
+            job.finish(Status.COMPLETED, null);
+            log.info("Replayed {} dead-lettered log events into {}", job.getReplayed(), logsRawTopic);
+        } catch (Exception e) {
+            job.finish(Status.FAILED, e.getMessage());
+            log.error("Dead-letter replay {} failed after {} events", job.getId(), job.getReplayed(), e);
+        }
+    }
+
+    private void replay(ReplayJob job) {
+        try (Consumer<String, LogEvent> consumer = consumerFactory.createConsumer(groupId + "-dlt-replay", "replay")) {
+            // assign() rather than subscribe(): no group rebalance to wait for, and the stopping point is known
+            List<TopicPartition> partitions = consumer.partitionsFor(failedLogRouter.getDeadLetterTopic()).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(Set.copyOf(partitions));
+            Map<TopicPartition, Long> remaining = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata offset = committed.get(partition);
+                if (offset != null) {
+                    consumer.seek(partition, offset.offset());
+                } else {
+                    consumer.seekToBeginning(List.of(partition));
+                }
+                if (consumer.position(partition) < endOffsets.get(partition)) {
+                    remaining.put(partition, endOffsets.get(partition));
+                } else {
+                    consumer.pause(List.of(partition));
+                }
+            }
+
+            long intervalNanos = (long) (1_000_000_000L / replayRatePerSecond);
+            long nextSendAt = System.nanoTime();
+
+            while (job.getReplayed() < job.getLimit() && !remaining.isEmpty()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Replay interrupted by shutdown");
+                }
+                ConsumerRecords<String, LogEvent> records = consumer.poll(POLL_TIMEOUT);
+                for (TopicPartition partition : records.partitions()) {
+                    List<ConsumerRecord<String, LogEvent>> partitionRecords = records.records(partition);
+                    long endOffset = remaining.getOrDefault(partition, -1L);
+                    long next = partitionRecords.get(0).offset();
+                    for (ConsumerRecord<String, LogEvent> record : partitionRecords) {
+                        // Records past the end offset were dead-lettered after the replay started
+                        if (record.offset() >= endOffset || job.getReplayed() >= job.getLimit()) {
+                            break;
+                        }
+                        long waitNanos = nextSendAt - System.nanoTime();
+                        if (waitNanos > 0) {
+                            LockSupport.parkNanos(waitNanos);
+                        }
+                        nextSendAt = Math.max(nextSendAt, System.nanoTime()) + intervalNanos;
+
+                        if (record.value() != null) {
+                            send(record);
+                            job.replayed.incrementAndGet();
+                            meterRegistry.counter("anomaly.retry.events", "stage", "dlt", "outcome", "replayed")
+                                    .increment();
+                        } else {
+                            // A value that failed to deserialize fails the same way on every replay, so it is still
+                            // committed rather than blocking the partition; the offset is logged for inspection
+                            job.unreadable.incrementAndGet();
+                            meterRegistry.counter("anomaly.retry.events", "stage", "dlt", "outcome", "unreadable")
+                                    .increment();
+                            log.warn("Skipping unreadable dead-lettered record {}-{} at offset {}",
+                                    record.topic(), record.partition(), record.offset());
+                        }
+                        next = record.offset() + 1;
+                        consumer.commitSync(Map.of(partition, new OffsetAndMetadata(next)));
+                    }
+                    // Stopping part-way through a poll leaves the position past records that were never sent
+                    consumer.seek(partition, next);
+                }
+
+                // Positions also move past transaction markers, which never show up as records
+                remaining.entrySet().removeIf(entry -> {
+                    boolean done = consumer.position(entry.getKey()) >= entry.getValue();
+                    if (done) {
+                        consumer.pause(List.of(entry.getKey()));
+                    }
+                    return done;
+                });
+            }
+        }
+    }
+
+    private void send(ConsumerRecord<String, LogEvent> record) {
+        if (kafkaTemplate.isTransactional()) {
+            // Not on a listener thread, so there is no container transaction to join
+            kafkaTemplate.executeInTransaction(
+                    template -> template.send(logsRawTopic, record.key(), record.value())).join();
+        } else {
+            kafkaTemplate.send(logsRawTopic, record.key(), record.value()).join();
+        }
+    }
+}
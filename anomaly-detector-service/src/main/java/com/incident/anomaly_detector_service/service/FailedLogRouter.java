@@ -0,0 +1,93 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+// Moves log events that failed processing off logs.raw onto delayed retry topics, and onto the dead-letter
+// topic once every retry stage is exhausted, so a failing record never blocks its partition
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FailedLogRouter {
+
+    public static final String STAGE_HEADER = "x-retry-stage";
+    public static final String NOT_BEFORE_HEADER = "x-retry-not-before";
+    public static final String CAUSE_HEADER = "x-retry-cause";
+
+    private final KafkaTemplate<String, LogEvent> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.topics.logs-raw-retry-prefix}")
+    private String retryTopicPrefix;
+
+    @Value("${kafka.topics.logs-raw-dlt}")
+    private String deadLetterTopic;
+
+    // One retry stage per delay, in order
+    @Value("${anomaly.retry.delays-ms}")
+    private List<Long> retryDelaysMs;
+
+    public int getStageCount() {
+        return retryDelaysMs.size();
+    }
+
+    public String retryTopic(int stage) {
+        return retryTopicPrefix + "-" + stage;
+    }
+
+    public List<String> getRetryTopics() {
+        return IntStream.range(0, retryDelaysMs.size()).mapToObj(this::retryTopic).toList();
+    }
+
+    public String getDeadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    // Sends the event to the given retry stage, or to the dead-letter topic past the last stage
+    public CompletableFuture<SendResult<String, LogEvent>> route(LogEvent logEvent, int stage, Exception cause) {
+        boolean deadLetter = stage >= retryDelaysMs.size();
+        String topic = deadLetter ? deadLetterTopic : retryTopic(stage);
+        String stageTag = deadLetter ? "dlt" : "retry-" + stage;
+
+        ProducerRecord<String, LogEvent> record = new ProducerRecord<>(topic, logEvent.getServiceName(), logEvent);
+        Headers headers = record.headers();
+        headers.add(STAGE_HEADER, String.valueOf(stage).getBytes(StandardCharsets.UTF_8));
+        if (!deadLetter) {
+            long notBefore = System.currentTimeMillis() + retryDelaysMs.get(stage);
+            headers.add(NOT_BEFORE_HEADER, String.valueOf(notBefore).getBytes(StandardCharsets.UTF_8));
+        }
+        if (cause != null) {
+            headers.add(CAUSE_HEADER, String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        meterRegistry.counter("anomaly.retry.events", "stage", stageTag, "outcome", "routed").increment();
+        if (deadLetter) {
+            log.warn("Log event {} exhausted {} retry stages, sending to {}", logEvent.getId(), stage, topic);
+        } else {
+            log.debug("Routing log event {} to {}", logEvent.getId(), topic);
+        }
+        return kafkaTemplate.send(record);
+    }
+
+    public void recordSuccess(int stage) {
+        meterRegistry.counter("anomaly.retry.events", "stage", "retry-" + stage, "outcome", "succeeded").increment();
+    }
+
+    public static long headerAsLong(Headers headers, String name, long defaultValue) {
+        var header = headers.lastHeader(name);
+        return header != null ? Long.parseLong(new String(header.value(), StandardCharsets.UTF_8)) : defaultValue;
+    }
+}
@@ -0,0 +1,83 @@
+package com.incident.anomaly_detector_service.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Decides when a second copy of a slow request is sent: after the configured percentile of recent latencies,
+// and only while the hedge budget (a fraction of regular calls) has tokens left
+public class HedgingPolicy {
+
+    private static final int SAMPLE_SIZE = 512;
+    private static final long DELAY_REFRESH_NANOS = Duration.ofSeconds(1).toNanos();
+    // Budget tokens are kept in thousandths so fractional ratios accumulate exactly
+    private static final long TOKEN = 1000;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final int minSamples;
+    private final long tokensPerCall;
+
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_SIZE);
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong tokens = new AtomicLong();
+
+    private volatile long cachedDelayNanos = -1;
+    private volatile long cachedAtNanos;
+
+    public HedgingPolicy(boolean enabled, double percentile, Duration minDelay, int minSamples, double budgetRatio) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.minSamples = Math.min(minSamples, SAMPLE_SIZE);
+        this.tokensPerCall = Math.round(budgetRatio * TOKEN);
+    }
+
+    public void recordLatency(long latencyNanos) {
+        long index = sampleCount.getAndIncrement();
+        samples.set((int) (index % SAMPLE_SIZE), latencyNanos);
+    }
+
+    // Called once per regular call; earns the budget that hedges spend
+    public void onCall() {
+        tokens.accumulateAndGet(tokensPerCall, (current, earned) -> Math.min(MAX_TOKENS, current + earned));
+    }
+
+    public boolean tryAcquireHedge() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    // Returns null when hedging is off or there are not yet enough samples to pick a delay
+    public Duration hedgeDelay() {
+        if (!enabled || sampleCount.get() < minSamples) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (cachedDelayNanos < 0 || now - cachedAtNanos > DELAY_REFRESH_NANOS) {
+            // A racing refresh computes the same value from nearly the same samples, so no lock is needed
+            cachedDelayNanos = Math.max(minDelayNanos, percentileNanos());
+            cachedAtNanos = now;
+        }
+        return Duration.ofNanos(cachedDelayNanos);
+    }
+
+    private long percentileNanos() {
+        int size = (int) Math.min(sampleCount.get(), SAMPLE_SIZE);
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, Math.min(size - 1, (int) Math.ceil(percentile * size) - 1))];
+    }
+}
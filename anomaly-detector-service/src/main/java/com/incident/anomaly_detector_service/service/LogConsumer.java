@@ -1,6 +1,7 @@
 package com.incident.anomaly_detector_service.service;
 
 import com.incident.anomaly_detector_service.model.LogEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -11,6 +12,7 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -18,11 +20,17 @@ import java.util.List;
 public class LogConsumer {
 
     private final AnomalyDetectionService anomalyDetectionService;
+    private final FailedLogRouter failedLogRouter;
+    private final MeterRegistry meterRegistry;
 
+    // Both listeners share one consumer group and only the one matching anomaly.consumer.mode is started,
+    // so every log event is scored exactly once
     @KafkaListener(
+            id = "logs-raw-record",
             topics = "${kafka.topics.logs-raw}",
             groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{'${anomaly.consumer.mode}' == 'record'}"
     )
     public void consumeLog(
             @Payload LogEvent logEvent,
@@ -37,21 +45,26 @@ public class LogConsumer {
             // Process the log event for anomaly detection
             anomalyDetectionService.processLogEvent(logEvent);
             
-            // Acknowledge the message
+            // Acknowledge only after the scored event has been produced
             acknowledgment.acknowledge();
+            meterRegistry.counter("anomaly.consumer.events", "mode", "record").increment();
             
         } catch (Exception e) {
             log.error("Error processing log event: {}", logEvent.getId(), e);
-            // Could implement retry logic or send to DLQ here
-            acknowledgment.acknowledge(); // Still acknowledge to avoid blocking
+            // Hand the record to the first retry stage so the partition keeps moving; if that send fails
+            // too the exception propagates and the offset stays uncommitted
+            failedLogRouter.route(logEvent, 0, e).join();
+            acknowledgment.acknowledge();
         }
     }
 
     @KafkaListener(
+            id = "logs-raw-batch",
             topics = "${kafka.topics.logs-raw}",
-            groupId = "${spring.kafka.consumer.group-id}-batch",
+            groupId = "${spring.kafka.consumer.group-id}",
             containerFactory = "batchKafkaListenerContainerFactory",
-            batch = "true"
+            batch = "true",
+            autoStartup = "#{'${anomaly.consumer.mode}' == 'batch'}"
     )
     public void consumeLogsBatch(
             @Payload List<LogEvent> logEvents,
@@ -61,15 +74,32 @@ public class LogConsumer {
         log.debug("Consumed batch of {} logs from topic: {}", logEvents.size(), topic);
         
         try {
-            // Process batch of log events
-            anomalyDetectionService.processLogEventsBatch(logEvents);
-            
-            // Acknowledge all messages in the batch
+            // Process batch of log events; only the events that did not reach logs.scored come back.
+            // In transactional mode a failed send aborts the whole poll instead, and it is redelivered
+            List<LogEvent> failed = anomalyDetectionService.processLogEventsBatch(logEvents);
+            if (!failed.isEmpty()) {
+                log.warn("{} of {} log events in the batch failed, routing them to the first retry stage",
+                        failed.size(), logEvents.size());
+                routeToRetry(failed, null);
+            }
+
+            // Acknowledge all messages in the batch once each is on logs.scored or on a retry topic
             acknowledgment.acknowledge();
+            meterRegistry.counter("anomaly.consumer.events", "mode", "batch")
+                    .increment(logEvents.size() - failed.size());
             
         } catch (Exception e) {
             log.error("Error processing batch of {} log events", logEvents.size(), e);
-            acknowledgment.acknowledge(); // Still acknowledge to avoid blocking
+            // Nothing tells which events were sent before the failure, so the whole batch is re-routed
+            routeToRetry(logEvents, e);
+            acknowledgment.acknowledge();
         }
     }
+
+    // If a send to the retry topic fails too the exception propagates and the offsets stay uncommitted
+    private void routeToRetry(List<LogEvent> logEvents, Exception cause) {
+        CompletableFuture.allOf(logEvents.stream()
+                .map(logEvent -> failedLogRouter.route(logEvent, 0, cause))
+                .toArray(CompletableFuture[]::new)).join();
+    }
 } 
\ No newline at end of file
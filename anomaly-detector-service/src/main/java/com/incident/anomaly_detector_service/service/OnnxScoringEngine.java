@@ -0,0 +1,281 @@
+package com.incident.anomaly_detector_service.service;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.util.LogFeatureExtractor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Scores batches in-process with an exported ONNX model, skipping the HTTP hop and JSON encoding to ai-service.
+// The model takes a [batch, FEATURE_NAMES.size()] float tensor and returns one anomaly score in [0, 1] per row.
+@Service
+@ConditionalOnProperty(name = "anomaly.onnx.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class OnnxScoringEngine implements ScoringEngine {
+
+    public static final String ENGINE_NAME = "onnx";
+
+    // Input contract for exported models; the order matches the columns the model was trained on
+    public static final List<String> FEATURE_NAMES = List.of(
+            "log_level_severity", "message_length", "has_stack_trace",
+            "pattern_ip_address_count", "pattern_uuid_count", "pattern_number_count",
+            "pattern_stack_trace_count", "pattern_exception_count", "message_entropy",
+            "hour_of_day", "day_of_week");
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${anomaly.onnx.model-path}")
+    private String modelPath;
+
+    @Value("${anomaly.onnx.intra-op-threads}")
+    private int intraOpThreads;
+
+    @Value("${anomaly.detection.batch-size}")
+    private int batchSize;
+
+    @Value("${anomaly.detection.threshold}")
+    private double anomalyThreshold;
+
+    private final OrtEnvironment environment = OrtEnvironment.getEnvironment();
+    private final AtomicReference<LoadedModel> currentModel = new AtomicReference<>();
+
+    // Direct input buffers are reused per listener thread so the tensor wraps them without copying
+    private final ThreadLocal<FloatBuffer> inputBuffers = new ThreadLocal<>();
+
+    private Timer inferenceTimer;
+
+    @PostConstruct
+    void initialize() throws OrtException, IOException {
+        inferenceTimer = Timer.builder("anomaly.onnx.inference")
+                .description("In-process ONNX inference time per batch")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("anomaly.onnx.model.loaded.at", currentModel,
+                ref -> ref.get() != null ? ref.get().modifiedAt : 0);
+
+        currentModel.set(load(Path.of(modelPath)));
+    }
+
+    // Hot swap: a newer file replaces the session for new batches while in-flight batches finish on the old one
+    @Scheduled(fixedDelayString = "${anomaly.onnx.reload-interval-ms}")
+    void reloadIfChanged() {
+        Path path = Path.of(modelPath);
+        try {
+            LoadedModel current = currentModel.get();
+            if (current == null || Files.getLastModifiedTime(path).toMillis() == current.modifiedAt) {
+                return;
+            }
+            LoadedModel previous = currentModel.getAndSet(load(path));
+            if (previous != null) {
+                previous.release();
+            }
+        } catch (IOException | OrtException e) {
+            // Keep serving with the model we have
+            log.error("Failed to reload ONNX model from {}", path, e);
+            meterRegistry.counter("anomaly.onnx.reload.failures").increment();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        LoadedModel model = currentModel.getAndSet(null);
+        if (model != null) {
+            model.release();
+        }
+    }
+
+    @Override
+    public Mono<List<ScoredLogEvent>> scoreBatch(List<LogEvent> logEvents) {
+        return Mono.fromCallable(() -> {
+            LoadedModel model = acquireModel();
+            try {
+                List<ScoredLogEvent> scored = new ArrayList<>(logEvents.size());
+                for (int from = 0; from < logEvents.size(); from += batchSize) {
+                    List<LogEvent> chunk = logEvents.subList(from, Math.min(from + batchSize, logEvents.size()));
+                    float[] scores = inferenceTimer.recordCallable(() -> infer(model, chunk));
+                    for (int i = 0; i < chunk.size(); i++) {
+                        scored.add(toScoredLogEvent(chunk.get(i), scores[i], model.version));
+                    }
+                }
+                return scored;
+            } finally {
+                model.release();
+            }
+        });
+    }
+
+    @Override
+    public String getEngineName() {
+        return ENGINE_NAME;
+    }
+
+    private LoadedModel acquireModel() {
+        while (true) {
+            LoadedModel model = currentModel.get();
+            if (model == null) {
+                throw new IllegalStateException("No ONNX model loaded");
+            }
+            // Fails only if a swap closed this model between the read and the retain; the next read sees the new one
+            if (model.retain()) {
+                return model;
+            }
+        }
+    }
+
+    private float[] infer(LoadedModel model, List<LogEvent> logEvents) throws OrtException {
+        int features = FEATURE_NAMES.size();
+        FloatBuffer input = inputBuffer(logEvents.size() * features);
+        float[] row = new float[features];
+        double[] messageFeatures = new double[LogFeatureExtractor.FEATURE_NAMES.size()];
+        for (LogEvent logEvent : logEvents) {
+            extractFeatures(logEvent, messageFeatures, row);
+            input.put(row);
+        }
+        input.flip();
+
+        long[] shape = {logEvents.size(), features};
+        try (OnnxTensor tensor = OnnxTensor.createTensor(environment, input, shape);
+             OrtSession.Result result = model.session.run(Map.of(model.inputName, tensor))) {
+            return flatten(result.get(0), logEvents.size());
+        }
+    }
+
+    private FloatBuffer inputBuffer(int capacity) {
+        FloatBuffer buffer = inputBuffers.get();
+        if (buffer == null || buffer.capacity() < capacity) {
+            int size = Math.max(capacity, batchSize * FEATURE_NAMES.size());
+            buffer = ByteBuffer.allocateDirect(size * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            inputBuffers.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private static float[] flatten(OnnxValue output, int rows) throws OrtException {
+        // Exporters emit either [batch] or [batch, 1]
+        Object value = output.getValue();
+        if (value instanceof float[] scores) {
+            return scores;
+        }
+        if (value instanceof float[][] matrix) {
+            float[] scores = new float[rows];
+            for (int i = 0; i < rows; i++) {
+                scores[i] = matrix[i][matrix[i].length - 1];
+            }
+            return scores;
+        }
+        throw new IllegalStateException("Unsupported ONNX output type: " + value.getClass().getSimpleName());
+    }
+
+    private void extractFeatures(LogEvent logEvent, double[] messageFeatures, float[] row) {
+        String message = logEvent.getMessage() != null ? logEvent.getMessage() : "";
+        LocalDateTime timestamp = logEvent.getTimestamp() != null ? logEvent.getTimestamp() : LocalDateTime.now();
+        LogFeatureExtractor.extract(message, messageFeatures);
+
+        row[0] = logEvent.getLevel() != null ? logEvent.getLevel().ordinal() : LogEvent.LogLevel.INFO.ordinal();
+        row[1] = message.length();
+        row[2] = logEvent.getStackTrace() != null ? 1 : 0;
+        row[3] = (float) messageFeatures[LogFeatureExtractor.IP_ADDRESS_COUNT];
+        row[4] = (float) messageFeatures[LogFeatureExtractor.UUID_COUNT];
+        row[5] = (float) messageFeatures[LogFeatureExtractor.NUMBER_COUNT];
+        row[6] = (float) messageFeatures[LogFeatureExtractor.STACK_TRACE_COUNT];
+        row[7] = (float) messageFeatures[LogFeatureExtractor.EXCEPTION_COUNT];
+        row[8] = (float) messageFeatures[LogFeatureExtractor.MESSAGE_ENTROPY];
+        row[9] = timestamp.getHour();
+        row[10] = timestamp.getDayOfWeek().getValue() - 1;
+    }
+
+    private ScoredLogEvent toScoredLogEvent(LogEvent logEvent, float score, String modelVersion) {
+        double anomalyScore = Math.max(0.0, Math.min(1.0, score));
+        boolean isAnomaly = anomalyScore > anomalyThreshold;
+        return ScoredLogEvent.fromLogEvent(logEvent)
+                .anomalyScore(anomalyScore)
+                .anomalyReasons(isAnomaly
+                        ? List.of(String.format("Model %s scored %.3f", modelVersion, anomalyScore))
+                        : List.of())
+                .featureScores(Map.of())
+                .isAnomaly(isAnomaly)
+                .anomalyType(isAnomaly ? "model_outlier" : "normal")
+                .scoredAt(LocalDateTime.now())
+                .build();
+    }
+
+    private LoadedModel load(Path path) throws OrtException, IOException {
+        long modifiedAt = Files.getLastModifiedTime(path).toMillis();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            options.setIntraOpNumThreads(intraOpThreads);
+            OrtSession session = environment.createSession(path.toString(), options);
+            String version = session.getMetadata().getVersion() + "@" + modifiedAt;
+            log.info("Loaded ONNX model {} (version {}, inputs {})", path, version, session.getInputNames());
+            return new LoadedModel(session, session.getInputNames().iterator().next(), version, modifiedAt);
+        }
+    }
+
+    // A session is closed once it has been swapped out and the last batch using it has released it
+    private static final class LoadedModel {
+        private final OrtSession session;
+        private final String inputName;
+        private final String version;
+        private final long modifiedAt;
+        // Starts at 1 for the reference held by currentModel
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private LoadedModel(OrtSession session, String inputName, String version, long modifiedAt) {
+            this.session = session;
+            this.inputName = inputName;
+            this.version = version;
+            this.modifiedAt = modifiedAt;
+        }
+
+        private boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                try {
+                    session.close();
+                } catch (OrtException e) {
+                    log.warn("Failed to close ONNX session for model {}", version, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Remembers the ids of log events that were already scored and published, so records this instance sees again
+// (a failed offset commit, or a rebalance that hands a partition back to the same instance) are dropped before
+// scoring. The filters are in memory and per instance: a restart, or a partition moving to another instance,
+// still rescores. Two Bloom filters rotate once the current one holds expected-ids-per-window ids, or after
+// window-ms at the latest, so no filter is filled past the size its false-positive rate was computed for. An id is
+// remembered for one to two windows, and memory stays fixed however many ids pass through.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RedeliveryDeduplicator {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${anomaly.dedup.enabled}")
+    private boolean enabled;
+
+    @Value("${anomaly.dedup.window-ms}")
+    private long windowMs;
+
+    @Value("${anomaly.dedup.expected-ids-per-window}")
+    private long expectedIdsPerWindow;
+
+    @Value("${anomaly.dedup.false-positive-rate}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private final AtomicLong currentInserts = new AtomicLong();
+    private volatile long lastRotationNanos = System.nanoTime();
+
+    private Counter dropped;
+
+    @PostConstruct
+    void initialize() {
+        current = new BloomFilter(expectedIdsPerWindow, falsePositiveRate);
+        previous = new BloomFilter(expectedIdsPerWindow, falsePositiveRate);
+        dropped = meterRegistry.counter("anomaly.dedup.dropped");
+        log.info("Redelivery dedup {} ({} KB per window)", enabled ? "enabled" : "disabled",
+                current.sizeInBytes() / 1024);
+    }
+
+    public boolean alreadyScored(LogEvent logEvent) {
+        if (!enabled || logEvent.getId() == null) {
+            return false;
+        }
+        boolean seen = current.mightContain(logEvent.getId()) || previous.mightContain(logEvent.getId());
+        if (seen) {
+            dropped.increment();
+            log.debug("Dropping redelivered log event {}", logEvent.getId());
+        }
+        return seen;
+    }
+
+    public List<LogEvent> withoutAlreadyScored(List<LogEvent> logEvents) {
+        if (!enabled) {
+            return logEvents;
+        }
+        return logEvents.stream()
+                .filter(logEvent -> !alreadyScored(logEvent))
+                .toList();
+    }
+
+    // Called once the scored events are on logs.scored, so a failed attempt is not mistaken for a duplicate.
+    // Inside a listener transaction the sends only count once it commits; an aborted poll is redelivered and must
+    // be scored again.
+    public void markScored(List<LogEvent> logEvents) {
+        if (!enabled || logEvents.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(logEvents);
+                }
+            });
+        } else {
+            put(logEvents);
+        }
+    }
+
+    private void put(List<LogEvent> logEvents) {
+        for (LogEvent logEvent : logEvents) {
+            if (logEvent.getId() != null) {
+                current.put(logEvent.getId());
+                if (currentInserts.incrementAndGet() >= expectedIdsPerWindow) {
+                    rotateIfFull();
+                }
+            }
+        }
+    }
+
+    private synchronized void rotateIfFull() {
+        // Another thread may have rotated while this one waited for the lock
+        if (currentInserts.get() >= expectedIdsPerWindow) {
+            rotate("full");
+        }
+    }
+
+    // Checked a few times per window so a window lasts window-ms from the last rotation, whatever caused it
+    @Scheduled(fixedDelayString = "#{${anomaly.dedup.window-ms} / 10}")
+    synchronized void rotateExpired() {
+        if (System.nanoTime() - lastRotationNanos >= windowMs * 1_000_000) {
+            rotate("expired");
+        }
+    }
+
+    private void rotate(String reason) {
+        previous = current;
+        current = new BloomFilter(expectedIdsPerWindow, falsePositiveRate);
+        currentInserts.set(0);
+        lastRotationNanos = System.nanoTime();
+        meterRegistry.counter("anomaly.dedup.rotations", "reason", reason).increment();
+    }
+}
@@ -0,0 +1,78 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Consumes the retry topics, one container per stage so a long delay on a late stage never holds up an early one.
+// Records are only processed once their not-before time has passed; until then the partition is paused via nack.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RetryConsumer {
+
+    private final ConcurrentKafkaListenerContainerFactory<String, LogEvent> kafkaListenerContainerFactory;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final FailedLogRouter failedLogRouter;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    private final List<ConcurrentMessageListenerContainer<String, LogEvent>> containers = new ArrayList<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        for (int stage = 0; stage < failedLogRouter.getStageCount(); stage++) {
+            int currentStage = stage;
+            ConcurrentMessageListenerContainer<String, LogEvent> container =
+                    kafkaListenerContainerFactory.createContainer(failedLogRouter.retryTopic(stage));
+            container.getContainerProperties().setGroupId(groupId + "-retry");
+            container.getContainerProperties().setMessageListener(
+                    (AcknowledgingMessageListener<String, LogEvent>) (record, ack) -> handle(currentStage, record, ack));
+            container.setBeanName("logs-raw-retry-" + stage);
+            container.start();
+            containers.add(container);
+        }
+        log.info("Started {} retry stage consumers", containers.size());
+    }
+
+    @PreDestroy
+    void stop() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+    }
+
+    private void handle(int stage, ConsumerRecord<String, LogEvent> record, Acknowledgment acknowledgment) {
+        long notBefore = FailedLogRouter.headerAsLong(record.headers(), FailedLogRouter.NOT_BEFORE_HEADER, 0);
+        long waitMs = notBefore - System.currentTimeMillis();
+        if (waitMs > 0) {
+            // Re-seeks this record and pauses the consumer; later records in the stage are due even later
+            acknowledgment.nack(Duration.ofMillis(waitMs));
+            return;
+        }
+
+        LogEvent logEvent = record.value();
+        try {
+            anomalyDetectionService.processLogEvent(logEvent);
+            failedLogRouter.recordSuccess(stage);
+        } catch (Exception e) {
+            log.warn("Retry stage {} failed for log event {}", stage, logEvent.getId(), e);
+            // The next stage (or the dead-letter topic) must have the record before this offset is committed
+            failedLogRouter.route(logEvent, stage + 1, e).join();
+        }
+        acknowledgment.acknowledge();
+    }
+}
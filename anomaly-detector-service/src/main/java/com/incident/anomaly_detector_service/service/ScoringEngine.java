@@ -0,0 +1,18 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ScoringEngine {
+    // Results must be positional: one ScoredLogEvent per input event, in input order
+    Mono<List<ScoredLogEvent>> scoreBatch(List<LogEvent> logEvents);
+
+    default Mono<ScoredLogEvent> score(LogEvent logEvent) {
+        return scoreBatch(List.of(logEvent)).map(scoredLogEvents -> scoredLogEvents.get(0));
+    }
+
+    String getEngineName();
+}
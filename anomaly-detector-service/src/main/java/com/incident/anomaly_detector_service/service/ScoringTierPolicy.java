@@ -0,0 +1,108 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.util.LogTemplates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Decides per event whether cheap local scoring is enough or the event is suspicious enough for the primary engine
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScoringTierPolicy {
+
+    public enum Tier {
+        LOCAL, AI
+    }
+
+    private static final double KEYWORD_WEIGHT = 0.3;
+    private static final double STACK_TRACE_WEIGHT = 0.3;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${anomaly.tiering.enabled}")
+    private boolean enabled;
+
+    @Value("${anomaly.tiering.suspicion-threshold}")
+    private double suspicionThreshold;
+
+    @Value("${anomaly.tiering.keywords}")
+    private List<String> keywords;
+
+    @Value("${anomaly.tiering.allowlist-templates:}")
+    private List<String> allowlistTemplates;
+
+    private Pattern keywordPattern;
+    private Set<String> allowlist;
+    private Counter localTierCounter;
+    private Counter aiTierCounter;
+
+    @PostConstruct
+    void initialize() {
+        keywordPattern = Pattern.compile(keywords.stream()
+                .map(String::trim)
+                .filter(keyword -> !keyword.isEmpty())
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|")), Pattern.CASE_INSENSITIVE);
+        allowlist = new HashSet<>(allowlistTemplates);
+
+        // The share of traffic per tier is local / (local + ai)
+        localTierCounter = meterRegistry.counter("anomaly.scoring.tier", "tier", "local");
+        aiTierCounter = meterRegistry.counter("anomaly.scoring.tier", "tier", "ai");
+
+        log.info("Scoring tiers {} (suspicion threshold: {}, {} allowlisted templates)",
+                enabled ? "enabled" : "disabled", suspicionThreshold, allowlist.size());
+    }
+
+    public Tier tierFor(LogEvent logEvent) {
+        Tier tier = enabled ? classify(logEvent) : Tier.AI;
+        (tier == Tier.LOCAL ? localTierCounter : aiTierCounter).increment();
+        return tier;
+    }
+
+    private Tier classify(LogEvent logEvent) {
+        // A missing level is treated as INFO, as in the AI request
+        LogEvent.LogLevel level = logEvent.getLevel() != null ? logEvent.getLevel() : LogEvent.LogLevel.INFO;
+        double suspicion = levelWeight(level);
+
+        String message = logEvent.getMessage();
+        if (message != null && keywordPattern.matcher(message).find()) {
+            suspicion += KEYWORD_WEIGHT;
+        }
+        if (logEvent.getStackTrace() != null && !logEvent.getStackTrace().isEmpty()) {
+            suspicion += STACK_TRACE_WEIGHT;
+        }
+
+        if (suspicion < suspicionThreshold) {
+            return Tier.LOCAL;
+        }
+        // Known-good shapes stay local unless they are logged at ERROR or above
+        if (!allowlist.isEmpty()
+                && level.ordinal() < LogEvent.LogLevel.ERROR.ordinal()
+                && allowlist.contains(LogTemplates.templateOf(message))) {
+            return Tier.LOCAL;
+        }
+        return Tier.AI;
+    }
+
+    private double levelWeight(LogEvent.LogLevel level) {
+        return switch (level) {
+            case FATAL -> 1.0;
+            case ERROR -> 0.7;
+            case WARN -> 0.4;
+            case INFO -> 0.1;
+            default -> 0.0;
+        };
+    }
+}
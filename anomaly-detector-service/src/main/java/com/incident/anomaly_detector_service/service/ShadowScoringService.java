@@ -0,0 +1,156 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.model.ShadowDisagreement;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Replays what the primary engine scored against a candidate engine, off the hot path, and records how the
+// two compare. Shadow work that does not fit in its own concurrency budget is skipped, never queued.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShadowScoringService {
+
+    private final List<ScoringEngine> scoringEngines;
+    private final KafkaTemplate<String, ShadowDisagreement> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${anomaly.shadow.enabled}")
+    private boolean enabled;
+
+    @Value("${anomaly.shadow.engine}")
+    private String shadowEngineName;
+
+    @Value("${anomaly.shadow.max-in-flight}")
+    private int maxInFlight;
+
+    @Value("${anomaly.shadow.score-tolerance}")
+    private double scoreTolerance;
+
+    @Value("${kafka.topics.shadow-disagreements}")
+    private String disagreementsTopic;
+
+    private ScoringEngine shadowEngine;
+    private Semaphore budget;
+    private DistributionSummary scoreDelta;
+    // Built once per engine; compare() runs for every scored batch
+    private Map<String, Timer> latencyTimers;
+
+    @PostConstruct
+    void initialize() {
+        latencyTimers = scoringEngines.stream().collect(Collectors.toUnmodifiableMap(
+                ScoringEngine::getEngineName,
+                engine -> Timer.builder("anomaly.scoring.latency")
+                        .description("Time to score one batch, per engine")
+                        .tag("engine", engine.getEngineName())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)));
+
+        if (!enabled) {
+            return;
+        }
+        // The primary path already folds every event into the statistical baselines; a statistical shadow would fold them twice
+        if (StatisticalScoringEngine.ENGINE_NAME.equals(shadowEngineName)) {
+            throw new IllegalStateException("The statistical engine cannot run as a shadow engine");
+        }
+        // The ONNX engine is only created when it is enabled, which is off by default
+        if (OnnxScoringEngine.ENGINE_NAME.equals(shadowEngineName) && scoringEngines.stream()
+                .noneMatch(engine -> engine.getEngineName().equals(OnnxScoringEngine.ENGINE_NAME))) {
+            throw new IllegalStateException("The onnx shadow engine needs anomaly.onnx.enabled=true "
+                    + "(ANOMALY_ONNX_ENABLED), or set anomaly.shadow.engine=ai");
+        }
+        shadowEngine = scoringEngines.stream()
+                .filter(engine -> engine.getEngineName().equals(shadowEngineName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown shadow scoring engine: " + shadowEngineName));
+        budget = new Semaphore(maxInFlight);
+        scoreDelta = DistributionSummary.builder("anomaly.shadow.score.delta")
+                .description("Absolute difference between primary and shadow anomaly scores")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        log.info("Shadow scoring with '{}' (max in flight: {})", shadowEngineName, maxInFlight);
+    }
+
+    // Records the primary latency and starts the shadow run in the background; returns immediately
+    public void compare(ScoringEngine primaryEngine, List<LogEvent> logEvents, List<ScoredLogEvent> primaryResults,
+                        long primaryLatencyNanos) {
+        latencyTimers.get(primaryEngine.getEngineName()).record(primaryLatencyNanos, TimeUnit.NANOSECONDS);
+
+        if (!enabled || shadowEngine == primaryEngine) {
+            return;
+        }
+        if (!budget.tryAcquire()) {
+            meterRegistry.counter("anomaly.shadow.skipped").increment();
+            return;
+        }
+
+        long start = System.nanoTime();
+        shadowEngine.scoreBatch(logEvents)
+                // Local engines score synchronously on subscription, so keep them off the listener thread
+                .subscribeOn(Schedulers.boundedElastic())
+                .doFinally(signal -> budget.release())
+                .subscribe(
+                        shadowResults -> {
+                            latencyTimers.get(shadowEngine.getEngineName())
+                                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            for (int i = 0; i < shadowResults.size(); i++) {
+                                record(primaryEngine, primaryResults.get(i), shadowResults.get(i));
+                            }
+                        },
+                        e -> {
+                            log.debug("Shadow engine '{}' failed for {} log events", shadowEngine.getEngineName(),
+                                    logEvents.size(), e);
+                            meterRegistry.counter("anomaly.shadow.failures").increment();
+                        });
+    }
+
+    private void record(ScoringEngine primaryEngine, ScoredLogEvent primary, ScoredLogEvent shadow) {
+        double delta = Math.abs(primary.getAnomalyScore() - shadow.getAnomalyScore());
+        scoreDelta.record(delta);
+
+        boolean agree = primary.isAnomaly() == shadow.isAnomaly() && delta <= scoreTolerance;
+        meterRegistry.counter("anomaly.shadow.comparisons", "outcome", agree ? "agree" : "disagree").increment();
+        if (agree) {
+            return;
+        }
+
+        ShadowDisagreement disagreement = ShadowDisagreement.builder()
+                .logEventId(primary.getId())
+                .serviceName(primary.getServiceName())
+                .level(primary.getLevel())
+                .message(primary.getMessage())
+                .primaryEngine(primaryEngine.getEngineName())
+                .primaryScore(primary.getAnomalyScore())
+                .primaryAnomaly(primary.isAnomaly())
+                .shadowEngine(shadowEngine.getEngineName())
+                .shadowScore(shadow.getAnomalyScore())
+                .shadowAnomaly(shadow.isAnomaly())
+                .comparedAt(LocalDateTime.now())
+                .build();
+
+        // Shadow results arrive outside any listener transaction, so a transactional template needs its own
+        if (kafkaTemplate.isTransactional()) {
+            kafkaTemplate.executeInTransaction(
+                    template -> template.send(disagreementsTopic, disagreement.getServiceName(), disagreement));
+        } else {
+            kafkaTemplate.send(disagreementsTopic, disagreement.getServiceName(), disagreement);
+        }
+    }
+}
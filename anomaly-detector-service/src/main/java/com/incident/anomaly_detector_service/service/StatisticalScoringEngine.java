@@ -0,0 +1,217 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.model.ScoringBaseline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class StatisticalScoringEngine implements ScoringEngine {
+
+    public static final String ENGINE_NAME = "statistical";
+
+    // Keys beyond max-keys share one baseline so memory stays bounded
+    private static final String OVERFLOW_KEY = "*";
+
+    private static final double EPSILON = 1e-6;
+    // Floor for the long-run error rate so a service that never errors does not get a zero variance
+    private static final double MIN_ERROR_RATE = 0.01;
+    // Component scores cross 0.5 at this many standard deviations (or nats of surprise for level rarity)
+    private static final double Z_CENTER = 3.0;
+    private static final double SURPRISE_CENTER = 4.6; // -ln(0.01): a level seen in 1% of events
+    private static final double LEVEL_RARITY_WEIGHT = 0.8;
+    private static final double LENGTH_WEIGHT = 0.6;
+
+    @Value("${anomaly.detection.threshold}")
+    private double anomalyThreshold;
+
+    @Value("${anomaly.statistical.fast-alpha}")
+    private double fastAlpha;
+
+    @Value("${anomaly.statistical.slow-alpha}")
+    private double slowAlpha;
+
+    @Value("${anomaly.statistical.min-samples}")
+    private long minSamples;
+
+    @Value("${anomaly.statistical.max-keys}")
+    private int maxKeys;
+
+    private final Map<String, ScoringBaseline> baselines = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<List<ScoredLogEvent>> scoreBatch(List<LogEvent> logEvents) {
+        return Mono.fromSupplier(() -> logEvents.stream()
+                .map(this::evaluate)
+                .toList());
+    }
+
+    @Override
+    public String getEngineName() {
+        return ENGINE_NAME;
+    }
+
+    public ScoredLogEvent evaluate(LogEvent logEvent) {
+        ScoringBaseline baseline = baselineFor(logEvent);
+        synchronized (baseline) {
+            return evaluate(logEvent, baseline);
+        }
+    }
+
+    // Folds the event into its baseline without scoring, keeping the fallback warm while another engine is primary
+    public void observe(LogEvent logEvent) {
+        ScoringBaseline baseline = baselineFor(logEvent);
+        synchronized (baseline) {
+            update(baseline, logEvent);
+        }
+    }
+
+    // Scores against the baseline as it stood before this event, then folds the event in.
+    // The caller owns the baseline and any locking around it.
+    public ScoredLogEvent evaluate(LogEvent logEvent, ScoringBaseline baseline) {
+        List<String> reasons = new ArrayList<>();
+        Map<String, Double> features = new HashMap<>();
+        double score;
+        String anomalyType;
+
+        if (baseline.getCount() < minSamples) {
+            score = warmUpScore(levelOf(logEvent));
+            anomalyType = "statistical_warmup";
+            reasons.add("Baseline warming up (" + baseline.getCount() + " samples), level-based scoring applied");
+        } else {
+            double errorScore = errorBurstScore(logEvent, baseline);
+            double levelScore = levelRarityScore(logEvent, baseline);
+            double lengthScore = LENGTH_WEIGHT * logistic(Math.abs(lengthZScore(logEvent, baseline)) - Z_CENTER);
+
+            features.put("error_burst", errorScore);
+            features.put("level_rarity", levelScore);
+            features.put("message_length", lengthScore);
+
+            score = Math.max(errorScore, Math.max(levelScore, lengthScore));
+            anomalyType = score == errorScore ? "error_spike" : "unusual_pattern";
+
+            if (errorScore >= 0.5) {
+                reasons.add(String.format("Error rate %.3f above baseline %.3f",
+                        baseline.getFastErrorRate(), baseline.getSlowErrorRate()));
+            }
+            if (levelScore >= 0.5) {
+                reasons.add("Log level " + levelOf(logEvent) + " is rare for this service");
+            }
+            if (lengthScore >= 0.5 * LENGTH_WEIGHT) {
+                reasons.add("Message length deviates from baseline");
+            }
+        }
+
+        update(baseline, logEvent);
+
+        return ScoredLogEvent.fromLogEvent(logEvent)
+                .anomalyScore(score)
+                .anomalyReasons(reasons)
+                .featureScores(features)
+                .isAnomaly(score > anomalyThreshold)
+                .anomalyType(anomalyType)
+                .scoredAt(LocalDateTime.now())
+                .build();
+    }
+
+    private ScoringBaseline baselineFor(LogEvent logEvent) {
+        String key = logEvent.getServiceName() + "|" + logEvent.getHostname();
+        ScoringBaseline baseline = baselines.get(key);
+        if (baseline != null) {
+            return baseline;
+        }
+        if (baselines.size() >= maxKeys) {
+            return baselines.computeIfAbsent(OVERFLOW_KEY, k -> new ScoringBaseline());
+        }
+        return baselines.computeIfAbsent(key, k -> new ScoringBaseline());
+    }
+
+    private double errorBurstScore(LogEvent logEvent, ScoringBaseline baseline) {
+        if (!isError(levelOf(logEvent))) {
+            return 0.0;
+        }
+        // Short-horizon error rate including this event, compared to the long-run rate using
+        // the variance of an EWMA over Bernoulli samples: p(1-p) * a / (2 - a)
+        double fastRate = baseline.getFastErrorRate() + fastAlpha * (1.0 - baseline.getFastErrorRate());
+        double longRate = Math.max(baseline.getSlowErrorRate(), MIN_ERROR_RATE);
+        double stdDev = Math.sqrt(longRate * (1.0 - longRate) * fastAlpha / (2.0 - fastAlpha));
+        return logistic((fastRate - longRate) / stdDev - Z_CENTER);
+    }
+
+    private double levelRarityScore(LogEvent logEvent, ScoringBaseline baseline) {
+        if (levelOf(logEvent).ordinal() < LogEvent.LogLevel.WARN.ordinal()) {
+            return 0.0;
+        }
+        double share = baseline.getLevelMix()[levelOf(logEvent).ordinal()];
+        double surprise = -Math.log(Math.max(share, EPSILON));
+        return LEVEL_RARITY_WEIGHT * logistic(surprise - SURPRISE_CENTER);
+    }
+
+    private double lengthZScore(LogEvent logEvent, ScoringBaseline baseline) {
+        double x = Math.log1p(messageLength(logEvent));
+        return (x - baseline.getLengthMean()) / Math.sqrt(baseline.getLengthVariance() + EPSILON);
+    }
+
+    private void update(ScoringBaseline baseline, LogEvent logEvent) {
+        long count = baseline.getCount() + 1;
+        baseline.setCount(count);
+
+        // Plain running averages until 1/count drops below alpha, so early estimates are not biased to zero
+        double fast = Math.max(fastAlpha, 1.0 / count);
+        double slow = Math.max(slowAlpha, 1.0 / count);
+
+        double error = isError(levelOf(logEvent)) ? 1.0 : 0.0;
+        baseline.setFastErrorRate(baseline.getFastErrorRate() + fast * (error - baseline.getFastErrorRate()));
+        baseline.setSlowErrorRate(baseline.getSlowErrorRate() + slow * (error - baseline.getSlowErrorRate()));
+
+        double x = Math.log1p(messageLength(logEvent));
+        double diff = x - baseline.getLengthMean();
+        double increment = slow * diff;
+        baseline.setLengthMean(baseline.getLengthMean() + increment);
+        baseline.setLengthVariance((1.0 - slow) * (baseline.getLengthVariance() + diff * increment));
+
+        double[] levelMix = baseline.getLevelMix();
+        int levelIndex = levelOf(logEvent).ordinal();
+        for (int i = 0; i < levelMix.length; i++) {
+            levelMix[i] += slow * ((i == levelIndex ? 1.0 : 0.0) - levelMix[i]);
+        }
+    }
+
+    private double warmUpScore(LogEvent.LogLevel level) {
+        // Deliberately below the default alerting thresholds: without a baseline we cannot tell a burst from normal
+        return switch (level) {
+            case FATAL -> 0.6;
+            case ERROR -> 0.45;
+            case WARN -> 0.25;
+            default -> 0.05;
+        };
+    }
+
+    // log-collector does not require a level, so a missing one is scored as INFO like the AI request does
+    private static LogEvent.LogLevel levelOf(LogEvent logEvent) {
+        return logEvent.getLevel() != null ? logEvent.getLevel() : LogEvent.LogLevel.INFO;
+    }
+
+    private static boolean isError(LogEvent.LogLevel level) {
+        return level == LogEvent.LogLevel.ERROR || level == LogEvent.LogLevel.FATAL;
+    }
+
+    private static int messageLength(LogEvent logEvent) {
+        return logEvent.getMessage() != null ? logEvent.getMessage().length() : 0;
+    }
+
+    private static double logistic(double x) {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+}
@@ -0,0 +1,123 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.model.ScoringBaseline;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Scores one log event inside the Kafka Streams runtime. Rolling baselines per service/host and event counts
+// per service and time window live in local state stores, which are restored from their changelogs on restart.
+@Slf4j
+public class StreamScoringProcessor implements FixedKeyProcessor<String, LogEvent, ScoredLogEvent> {
+
+    public static final String BASELINE_STORE = "anomaly-baselines";
+    public static final String RATE_STORE = "anomaly-service-rates";
+
+    private final StatisticalScoringEngine statisticalScoringEngine;
+    private final long rateWindowMs;
+    private final int rateHistoryWindows;
+    private final double spikeRatio;
+    private final long minCount;
+
+    private FixedKeyProcessorContext<String, ScoredLogEvent> context;
+    private KeyValueStore<String, ScoringBaseline> baselines;
+    private WindowStore<String, Long> rates;
+
+    public StreamScoringProcessor(StatisticalScoringEngine statisticalScoringEngine, Duration rateWindow,
+                                  int rateHistoryWindows, double spikeRatio, long minCount) {
+        this.statisticalScoringEngine = statisticalScoringEngine;
+        this.rateWindowMs = rateWindow.toMillis();
+        this.rateHistoryWindows = rateHistoryWindows;
+        this.spikeRatio = spikeRatio;
+        this.minCount = minCount;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, ScoredLogEvent> context) {
+        this.context = context;
+        this.baselines = context.getStateStore(BASELINE_STORE);
+        this.rates = context.getStateStore(RATE_STORE);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, LogEvent> record) {
+        LogEvent logEvent = record.value();
+        if (logEvent == null) {
+            return;
+        }
+
+        ScoredLogEvent scored;
+        try {
+            scored = score(logEvent, record.timestamp());
+        } catch (RuntimeException e) {
+            // Rethrowing would kill the stream thread and fail again on the same offset after every restart
+            log.error("Skipping log event {} that could not be scored{}", logEvent.getId(),
+                    context.recordMetadata().map(metadata -> " at " + metadata.topic() + "-"
+                            + metadata.partition() + "@" + metadata.offset()).orElse(""), e);
+            return;
+        }
+        context.forward(record.withValue(scored));
+    }
+
+    private ScoredLogEvent score(LogEvent logEvent, long timestamp) {
+        // Each task owns its stores, so the baseline needs no locking here
+        String baselineKey = logEvent.getServiceName() + "|" + logEvent.getHostname();
+        ScoringBaseline baseline = baselines.get(baselineKey);
+        if (baseline == null) {
+            baseline = new ScoringBaseline();
+        }
+        ScoredLogEvent scored = statisticalScoringEngine.evaluate(logEvent, baseline);
+        baselines.put(baselineKey, baseline);
+
+        applyRateFeature(scored, String.valueOf(logEvent.getServiceName()), timestamp);
+        return scored;
+    }
+
+    private void applyRateFeature(ScoredLogEvent scored, String serviceName, long timestamp) {
+        long windowStart = timestamp - Math.floorMod(timestamp, rateWindowMs);
+        Long current = rates.fetch(serviceName, windowStart);
+        long count = (current != null ? current : 0) + 1;
+        rates.put(serviceName, count, windowStart);
+
+        long historyTotal = 0;
+        long historyFrom = windowStart - rateHistoryWindows * rateWindowMs;
+        try (WindowStoreIterator<Long> history = rates.fetch(serviceName,
+                Instant.ofEpochMilli(historyFrom), Instant.ofEpochMilli(windowStart - 1))) {
+            while (history.hasNext()) {
+                historyTotal += history.next().value;
+            }
+        }
+        double trailingAverage = (double) historyTotal / rateHistoryWindows;
+        double ratio = count / Math.max(trailingAverage, 1.0);
+
+        Map<String, Double> features = scored.getFeatureScores() != null
+                ? new HashMap<>(scored.getFeatureScores())
+                : new HashMap<>();
+        features.put("service_event_rate_ratio", ratio);
+        scored.setFeatureScores(features);
+
+        // Only the event that crosses the spike level is tagged, not every event after it in the window
+        long spikeLevel = Math.max(minCount, (long) Math.ceil(spikeRatio * Math.max(trailingAverage, 1.0)));
+        if (count == spikeLevel) {
+            List<String> reasons = scored.getAnomalyReasons() != null
+                    ? new ArrayList<>(scored.getAnomalyReasons())
+                    : new ArrayList<>();
+            reasons.add(String.format("Service event rate %d per %ds is %.1fx the trailing average",
+                    count, rateWindowMs / 1000, ratio));
+            scored.setAnomalyReasons(reasons);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.util.BloomFilter;
+import com.incident.anomaly_detector_service.util.LogTemplates;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Remembers every message template seen per service and tags events whose template is new for that service.
+// The filters are snapshotted to disk so a restart does not report every template as novel again.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TemplateNoveltyIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x544d504c; // "TMPL"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${anomaly.novelty.enabled}")
+    private boolean enabled;
+
+    @Value("${anomaly.novelty.expected-templates}")
+    private long expectedTemplates;
+
+    @Value("${anomaly.novelty.false-positive-rate}")
+    private double falsePositiveRate;
+
+    @Value("${anomaly.novelty.max-services}")
+    private int maxServices;
+
+    @Value("${anomaly.novelty.warmup-events}")
+    private long warmupEvents;
+
+    @Value("${anomaly.novelty.snapshot-path}")
+    private String snapshotPath;
+
+    private final Map<String, ServiceTemplates> services = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initialize() {
+        if (enabled) {
+            restoreSnapshot();
+        }
+        meterRegistry.gaugeMapSize("anomaly.novelty.services", Tags.empty(), services);
+    }
+
+    // Adds a reason when the event's template has never been seen for its service; the template is recorded either way
+    public void tag(ScoredLogEvent scoredLogEvent) {
+        if (!enabled || scoredLogEvent.getServiceName() == null) {
+            return;
+        }
+        ServiceTemplates templates = templatesFor(scoredLogEvent.getServiceName());
+        if (templates == null) {
+            return;
+        }
+
+        String template = LogTemplates.templateOf(scoredLogEvent.getMessage());
+        boolean novel = templates.filter.put(template);
+        // A service with no history yet would report everything as novel, so it only learns until warmed up
+        if (templates.observed.incrementAndGet() <= warmupEvents || !novel) {
+            return;
+        }
+
+        List<String> reasons = scoredLogEvent.getAnomalyReasons() != null
+                ? new ArrayList<>(scoredLogEvent.getAnomalyReasons())
+                : new ArrayList<>();
+        reasons.add("Novel message template for " + scoredLogEvent.getServiceName() + ": " + template);
+        scoredLogEvent.setAnomalyReasons(reasons);
+
+        Map<String, Double> features = scoredLogEvent.getFeatureScores() != null
+                ? new HashMap<>(scoredLogEvent.getFeatureScores())
+                : new HashMap<>();
+        features.put("template_novelty", 1.0);
+        scoredLogEvent.setFeatureScores(features);
+
+        meterRegistry.counter("anomaly.novelty.templates").increment();
+    }
+
+    @Scheduled(fixedDelayString = "${anomaly.novelty.snapshot-interval-ms}")
+    void snapshot() {
+        if (!enabled || services.isEmpty()) {
+            return;
+        }
+        Path path = Path.of(snapshotPath);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            // Write beside the target and rename so a crash mid-write never leaves a truncated snapshot
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                Map<String, ServiceTemplates> current = new HashMap<>(services);
+                out.writeInt(current.size());
+                for (Map.Entry<String, ServiceTemplates> entry : current.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().observed.get());
+                    entry.getValue().filter.writeTo(out);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Snapshotted template index for {} services to {}", services.size(), path);
+        } catch (IOException e) {
+            log.warn("Failed to snapshot template index to {}", path, e);
+            meterRegistry.counter("anomaly.novelty.snapshot.failures").increment();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        snapshot();
+    }
+
+    private ServiceTemplates templatesFor(String serviceName) {
+        ServiceTemplates templates = services.get(serviceName);
+        if (templates != null) {
+            return templates;
+        }
+        if (services.size() >= maxServices) {
+            return null;
+        }
+        return services.computeIfAbsent(serviceName,
+                k -> new ServiceTemplates(new BloomFilter(expectedTemplates, falsePositiveRate), 0));
+    }
+
+    private void restoreSnapshot() {
+        Path path = Path.of(snapshotPath);
+        if (!Files.exists(path)) {
+            log.info("No template index snapshot at {}, starting empty", path);
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring template index snapshot {} with unknown format", path);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String serviceName = in.readUTF();
+                long observed = in.readLong();
+                services.put(serviceName, new ServiceTemplates(BloomFilter.readFrom(in), observed));
+            }
+            log.info("Restored template index for {} services from {}", count, path);
+        } catch (IOException e) {
+            // Starting empty only costs a warm-up period per service
+            log.warn("Failed to restore template index from {}, starting empty", path, e);
+            services.clear();
+        }
+    }
+
+    private static final class ServiceTemplates {
+        private final BloomFilter filter;
+        private final AtomicLong observed;
+
+        private ServiceTemplates(BloomFilter filter, long observed) {
+            this.filter = filter;
+            this.observed = new AtomicLong(observed);
+        }
+    }
+}
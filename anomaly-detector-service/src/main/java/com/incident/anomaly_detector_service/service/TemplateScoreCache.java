@@ -0,0 +1,67 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.util.LogTemplates;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Caches AI responses by (service, level, message template) so repeated message shapes skip the network call
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TemplateScoreCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${anomaly.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${anomaly.cache.max-size}")
+    private long maxSize;
+
+    @Value("${anomaly.cache.ttl-seconds}")
+    private long ttlSeconds;
+
+    private Cache<String, Map<String, Object>> cache;
+
+    @PostConstruct
+    void initialize() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        // Exposes cache.gets{result=hit|miss}, cache.evictions and cache.size tagged cache=anomaly-score
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "anomaly-score");
+        log.info("Template score cache {} (max size: {}, ttl: {}s)", enabled ? "enabled" : "disabled", maxSize, ttlSeconds);
+    }
+
+    public Map<String, Object> get(LogEvent logEvent) {
+        return enabled ? cache.getIfPresent(keyOf(logEvent)) : null;
+    }
+
+    public void put(LogEvent logEvent, Map<String, Object> aiResponse) {
+        if (enabled) {
+            // The AI response may carry null values, which Map.copyOf rejects
+            cache.put(keyOf(logEvent), Collections.unmodifiableMap(new HashMap<>(aiResponse)));
+        }
+    }
+
+    private String keyOf(LogEvent logEvent) {
+        return logEvent.getServiceName() + '\u0000' + logEvent.getLevel() + '\u0000'
+                + LogTemplates.templateOf(logEvent.getMessage());
+    }
+}
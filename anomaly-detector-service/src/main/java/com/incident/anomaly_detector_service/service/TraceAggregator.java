@@ -0,0 +1,365 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Groups scored events by traceId until the trace has been quiet for session-gap-ms, then scores the trace as a
+// whole: errors that spread across services and span counts far from the entry service's usual shape.
+// With replace-line-events, traced lines are held here and only the trace-level event reaches logs.scored.
+// Traces are assembled in this instance's memory, but logs.raw and logs.scored are keyed by serviceName, so with
+// more than one instance the lines of a trace are split between them and each sees only part of it. Trace scores
+// are then partial; with replace-line-events every part is replaced by its own partial trace event, so that mode
+// is refused unless single-instance confirms that one instance consumes all of logs.raw.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TraceAggregator {
+
+    public static final String ANOMALY_TYPE = "trace_anomaly";
+
+    private static final int MAX_REASONS = 5;
+
+    private final KafkaTemplate<String, ScoredLogEvent> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.topics.logs-scored}")
+    private String logsScoredTopic;
+
+    @Value("${anomaly.trace.enabled}")
+    private boolean enabled;
+
+    // Held lines are only in memory and their offsets are already committed, so a crash before the trace closes
+    // or a failed send of the trace event loses them
+    @Value("${anomaly.trace.replace-line-events}")
+    private boolean replaceLineEvents;
+
+    @Value("${anomaly.trace.single-instance}")
+    private boolean singleInstance;
+
+    @Value("${anomaly.trace.session-gap-ms}")
+    private long sessionGapMs;
+
+    @Value("${anomaly.trace.max-duration-ms}")
+    private long maxDurationMs;
+
+    @Value("${anomaly.trace.max-open-traces}")
+    private int maxOpenTraces;
+
+    @Value("${anomaly.trace.span-zscore-threshold}")
+    private double spanZScoreThreshold;
+
+    @Value("${anomaly.trace.baseline-alpha}")
+    private double baselineAlpha;
+
+    @Value("${anomaly.trace.warmup-traces}")
+    private long warmupTraces;
+
+    @Value("${anomaly.detection.threshold}")
+    private double anomalyThreshold;
+
+    private final Map<String, TraceWindow> openTraces = new ConcurrentHashMap<>();
+    private final Map<String, SpanBaseline> spanBaselines = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initialize() {
+        if (enabled && replaceLineEvents && !singleInstance) {
+            throw new IllegalStateException("anomaly.trace.replace-line-events requires anomaly.trace.single-instance"
+                    + "=true: traces are assembled per instance while logs.raw is partitioned by serviceName, so "
+                    + "several instances would each replace their share of a trace's lines with a partial trace");
+        }
+        if (enabled && !singleInstance) {
+            log.warn("Trace aggregation is per instance; with more than one anomaly-detector instance, traces that "
+                    + "span services are scored in parts");
+        }
+        Gauge.builder("anomaly.trace.open", openTraces, Map::size)
+                .description("Traces waiting for their session gap to close")
+                .register(meterRegistry);
+    }
+
+    // Folds a scored line into its trace; returns true when the line is absorbed and must not be sent on its own
+    public boolean absorb(ScoredLogEvent scoredLogEvent) {
+        if (!enabled || scoredLogEvent.getTraceId() == null || scoredLogEvent.getTraceId().isBlank()) {
+            return false;
+        }
+
+        TraceWindow window = openTraces.get(scoredLogEvent.getTraceId());
+        if (window == null) {
+            // Past the cap, new traces pass through line by line rather than evicting traces still being assembled
+            if (openTraces.size() >= maxOpenTraces) {
+                meterRegistry.counter("anomaly.trace.untracked").increment();
+                return false;
+            }
+            window = openTraces.computeIfAbsent(scoredLogEvent.getTraceId(), TraceWindow::new);
+        }
+
+        // A sweep may have closed this window between the lookup and the add; the line is then sent on its own
+        return window.add(scoredLogEvent, replaceLineEvents) && replaceLineEvents;
+    }
+
+    @Scheduled(fixedDelayString = "${anomaly.trace.sweep-interval-ms}")
+    void closeQuietTraces() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<TraceWindow> iterator = openTraces.values().iterator();
+        while (iterator.hasNext()) {
+            TraceWindow window = iterator.next();
+            if (window.isQuiet(now, sessionGapMs) || window.isExpired(now, maxDurationMs)) {
+                iterator.remove();
+                closeTrace(window);
+            }
+        }
+    }
+
+    @PreDestroy
+    void flush() {
+        openTraces.values().forEach(this::closeTrace);
+        openTraces.clear();
+    }
+
+    private void closeTrace(TraceWindow window) {
+        try {
+            TraceSummary summary = window.close();
+            if (summary == null) {
+                return;
+            }
+            ScoredLogEvent traceEvent = scoreTrace(summary);
+            meterRegistry.counter("anomaly.trace.closed", "anomalous", String.valueOf(traceEvent.isAnomaly()))
+                    .increment();
+            // Without held lines there is nothing to replace, so only anomalous traces are worth publishing
+            if (replaceLineEvents || traceEvent.isAnomaly()) {
+                send(traceEvent, summary.eventCount);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to close trace {}", window.traceId, e);
+        }
+    }
+
+    private ScoredLogEvent scoreTrace(TraceSummary summary) {
+        List<String> reasons = new ArrayList<>();
+        double score = summary.maxLineScore;
+
+        int errorServices = summary.errorServices.size();
+        if (errorServices >= 2) {
+            score = Math.max(score, Math.min(1.0, 0.5 + 0.15 * errorServices));
+            reasons.add(String.format("Errors propagated across %d services: %s",
+                    errorServices, String.join(" -> ", summary.errorServices)));
+        }
+
+        double spanZScore = spanBaselines
+                .computeIfAbsent(summary.entryService, service -> new SpanBaseline())
+                .observe(summary.spanCount, baselineAlpha, warmupTraces);
+        if (Math.abs(spanZScore) >= spanZScoreThreshold) {
+            score = Math.max(score, Math.min(1.0, Math.abs(spanZScore) / (2 * spanZScoreThreshold)));
+            reasons.add(String.format("%d spans, %.1f standard deviations from the usual for %s",
+                    summary.spanCount, spanZScore, summary.entryService));
+        }
+
+        if (summary.maxLineScore > anomalyThreshold) {
+            reasons.add(String.format("%d anomalous lines, highest score %.2f",
+                    summary.anomalousLines, summary.maxLineScore));
+        }
+        summary.lineReasons.stream().limit(MAX_REASONS).forEach(reasons::add);
+
+        ScoredLogEvent representative = summary.representative;
+        String serviceName = errorServices > 0 ? summary.errorServices.iterator().next() : summary.entryService;
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("services", new ArrayList<>(summary.services));
+        metadata.put("event_count", summary.eventCount);
+        metadata.put("span_count", summary.spanCount);
+        metadata.put("duration_ms", summary.durationMs);
+        metadata.put("representative_event_id", String.valueOf(representative.getId()));
+
+        Map<String, Double> featureScores = new HashMap<>();
+        featureScores.put("trace_event_count", (double) summary.eventCount);
+        featureScores.put("trace_span_count", (double) summary.spanCount);
+        featureScores.put("trace_service_count", (double) summary.services.size());
+        featureScores.put("trace_error_service_count", (double) errorServices);
+        featureScores.put("trace_span_zscore", spanZScore);
+        featureScores.put("trace_max_line_score", summary.maxLineScore);
+
+        return ScoredLogEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .serviceName(serviceName)
+                .hostname(representative.getHostname())
+                .podName(representative.getPodName())
+                .level(summary.maxLevel)
+                .message(String.format("Trace %s: %d events across %d services, %d with errors",
+                        summary.traceId, summary.eventCount, summary.services.size(), errorServices))
+                .stackTrace(representative.getStackTrace())
+                .timestamp(summary.firstTimestamp != null ? summary.firstTimestamp : LocalDateTime.now())
+                .metadata(metadata)
+                .traceId(summary.traceId)
+                .spanId(representative.getSpanId())
+                .anomalyScore(score)
+                .anomalyReasons(reasons)
+                .featureScores(featureScores)
+                .isAnomaly(score > anomalyThreshold)
+                .anomalyType(ANOMALY_TYPE)
+                .scoredAt(LocalDateTime.now())
+                .build();
+    }
+
+    private void send(ScoredLogEvent traceEvent, int eventCount) {
+        CompletableFuture<SendResult<String, ScoredLogEvent>> sent;
+        try {
+            if (kafkaTemplate.isTransactional()) {
+                // Not on a listener thread, so there is no container transaction to join
+                sent = kafkaTemplate.executeInTransaction(
+                        template -> template.send(logsScoredTopic, traceEvent.getServiceName(), traceEvent));
+            } else {
+                sent = kafkaTemplate.send(logsScoredTopic, traceEvent.getServiceName(), traceEvent);
+            }
+        } catch (RuntimeException e) {
+            // A failed transaction commit throws here rather than failing the future
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((result, ex) -> {
+            if (ex == null) {
+                log.debug("Sent trace event for trace {} with score: {}",
+                        traceEvent.getTraceId(), traceEvent.getAnomalyScore());
+            } else {
+                meterRegistry.counter("anomaly.trace.send.failed").increment();
+                if (replaceLineEvents) {
+                    log.error("Failed to send trace event for trace {}; its {} held lines are lost",
+                            traceEvent.getTraceId(), eventCount, ex);
+                } else {
+                    log.error("Failed to send trace event for trace {}", traceEvent.getTraceId(), ex);
+                }
+            }
+        });
+    }
+
+    private static final class TraceWindow {
+        private final String traceId;
+        private final long openedAt = System.currentTimeMillis();
+        private final Set<String> services = new LinkedHashSet<>();
+        private final Set<String> errorServices = new LinkedHashSet<>();
+        private final Set<String> spanIds = new HashSet<>();
+        private final List<String> lineReasons = new ArrayList<>();
+        private String entryService;
+        private LocalDateTime firstTimestamp;
+        private LogEvent.LogLevel maxLevel = LogEvent.LogLevel.TRACE;
+        private ScoredLogEvent representative;
+        private double maxLineScore;
+        private int eventCount;
+        private int anomalousLines;
+        private long lastSeenAt = openedAt;
+        private boolean closed;
+
+        private TraceWindow(String traceId) {
+            this.traceId = traceId;
+        }
+
+        private synchronized boolean add(ScoredLogEvent event, boolean keepReasons) {
+            if (closed) {
+                return false;
+            }
+            lastSeenAt = System.currentTimeMillis();
+            eventCount++;
+
+            String service = event.getServiceName() != null ? event.getServiceName() : "unknown";
+            services.add(service);
+            if (event.getSpanId() != null) {
+                spanIds.add(event.getSpanId());
+            }
+            // The earliest line by event time is taken as the trace entry point
+            if (firstTimestamp == null
+                    || (event.getTimestamp() != null && event.getTimestamp().isBefore(firstTimestamp))) {
+                firstTimestamp = event.getTimestamp();
+                entryService = service;
+            }
+            if (event.getLevel() != null) {
+                if (event.getLevel().compareTo(maxLevel) > 0) {
+                    maxLevel = event.getLevel();
+                }
+                if (event.getLevel().compareTo(LogEvent.LogLevel.ERROR) >= 0) {
+                    errorServices.add(service);
+                }
+            }
+            if (event.isAnomaly()) {
+                anomalousLines++;
+                // Line reasons are only kept when the lines themselves are not published
+                if (keepReasons && event.getAnomalyReasons() != null && lineReasons.size() < MAX_REASONS) {
+                    event.getAnomalyReasons().forEach(reason -> lineReasons.add(service + ": " + reason));
+                }
+            }
+            if (representative == null || event.getAnomalyScore() > maxLineScore) {
+                representative = event;
+                maxLineScore = event.getAnomalyScore();
+            }
+            return true;
+        }
+
+        private synchronized boolean isQuiet(long now, long sessionGapMs) {
+            return now - lastSeenAt >= sessionGapMs;
+        }
+
+        private boolean isExpired(long now, long maxDurationMs) {
+            return now - openedAt >= maxDurationMs;
+        }
+
+        private synchronized TraceSummary close() {
+            closed = true;
+            if (representative == null) {
+                return null;
+            }
+            return new TraceSummary(traceId, entryService != null ? entryService : services.iterator().next(),
+                    services, errorServices, lineReasons, firstTimestamp, maxLevel, representative, maxLineScore,
+                    eventCount, anomalousLines, Math.max(1, spanIds.size()), lastSeenAt - openedAt);
+        }
+    }
+
+    private record TraceSummary(String traceId, String entryService, Set<String> services,
+                                Set<String> errorServices, List<String> lineReasons, LocalDateTime firstTimestamp,
+                                LogEvent.LogLevel maxLevel, ScoredLogEvent representative, double maxLineScore,
+                                int eventCount, int anomalousLines, int spanCount, long durationMs) {
+    }
+
+    // Exponentially weighted mean and variance of span counts for traces entering through one service
+    private static final class SpanBaseline {
+        private double mean;
+        private double variance;
+        private long count;
+
+        // Returns the z-score of spanCount against the baseline before it is updated, or 0 while warming up
+        private synchronized double observe(int spanCount, double alpha, long warmup) {
+            double zScore = count >= warmup && variance > 0 ? (spanCount - mean) / Math.sqrt(variance) : 0.0;
+            if (count == 0) {
+                mean = spanCount;
+            } else {
+                double delta = spanCount - mean;
+                mean += alpha * delta;
+                variance = (1 - alpha) * (variance + alpha * delta * delta);
+            }
+            count++;
+            return zScore;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.util.SlidingWindowCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Counts events per service/host/level in time buckets and flags a bucket whose volume jumps well above
+// the trailing average, which per-event scoring cannot see (e.g. a burst of otherwise normal WARN lines)
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VolumeSpikeDetector {
+
+    public static final String ANOMALY_TYPE = "volume_spike";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${anomaly.volume.enabled}")
+    private boolean enabled;
+
+    // Number of buckets per key: the current one plus window-size - 1 trailing buckets
+    @Value("${anomaly.detection.window-size}")
+    private int windowSize;
+
+    @Value("${anomaly.volume.bucket-seconds}")
+    private long bucketSeconds;
+
+    @Value("${anomaly.volume.spike-ratio}")
+    private double spikeRatio;
+
+    @Value("${anomaly.volume.min-count}")
+    private long minCount;
+
+    @Value("${anomaly.volume.max-keys}")
+    private int maxKeys;
+
+    @Value("${anomaly.detection.threshold}")
+    private double anomalyThreshold;
+
+    private final Map<String, SlidingWindowCounter> counters = new ConcurrentHashMap<>();
+
+    // Records the event and returns a synthetic volume_spike event the first time its bucket crosses the spike level
+    public Optional<ScoredLogEvent> record(LogEvent logEvent) {
+        if (!enabled || logEvent.getLevel() == null) {
+            return Optional.empty();
+        }
+
+        long bucket = System.currentTimeMillis() / (bucketSeconds * 1000);
+        SlidingWindowCounter counter = counterFor(logEvent, bucket);
+        if (counter == null) {
+            return Optional.empty();
+        }
+
+        long count = counter.increment(bucket);
+        if (count < minCount || !counter.isWarm(bucket)) {
+            return Optional.empty();
+        }
+        double baseline = counter.trailingMean();
+        if (count < spikeRatio * baseline || !counter.markAlerted(bucket)) {
+            return Optional.empty();
+        }
+
+        meterRegistry.counter("anomaly.volume.spikes").increment();
+        return Optional.of(spikeEvent(logEvent, count, baseline));
+    }
+
+    private SlidingWindowCounter counterFor(LogEvent logEvent, long bucket) {
+        String key = logEvent.getServiceName() + "|" + logEvent.getHostname() + "|" + logEvent.getLevel();
+        SlidingWindowCounter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        // Untracked keys are skipped rather than pooled, since a shared counter would spike on any new key's traffic
+        if (counters.size() >= maxKeys) {
+            meterRegistry.counter("anomaly.volume.untracked").increment();
+            return null;
+        }
+        return counters.computeIfAbsent(key, k -> new SlidingWindowCounter(windowSize, bucket));
+    }
+
+    private ScoredLogEvent spikeEvent(LogEvent logEvent, long count, double baseline) {
+        double ratio = count / Math.max(baseline, 1.0);
+        double score = Math.min(1.0, 1.0 - 1.0 / ratio);
+        String reason = String.format("%d %s events in %ds, %.1fx the trailing average of %.1f",
+                count, logEvent.getLevel(), bucketSeconds, ratio, baseline);
+
+        log.info("Volume spike for {}/{}: {}", logEvent.getServiceName(), logEvent.getHostname(), reason);
+
+        return ScoredLogEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .serviceName(logEvent.getServiceName())
+                .hostname(logEvent.getHostname())
+                .podName(logEvent.getPodName())
+                .level(logEvent.getLevel())
+                .message("Volume spike: " + reason)
+                .timestamp(LocalDateTime.now())
+                .metadata(Map.of(
+                        "bucket_seconds", bucketSeconds,
+                        "event_count", count,
+                        "trailing_average", baseline,
+                        "triggering_event_id", String.valueOf(logEvent.getId())))
+                .anomalyScore(score)
+                .anomalyReasons(List.of(reason))
+                .featureScores(Map.of("volume_ratio", ratio))
+                .isAnomaly(score > anomalyThreshold)
+                .anomalyType(ANOMALY_TYPE)
+                .scoredAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.incident.anomaly_detector_service.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Thread-safe Bloom filter over strings. Bits are set with CAS so concurrent puts never lose each other's bits.
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashes;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.numBits = (long) wordCount * 64;
+        this.numHashes = (int) Math.max(1, Math.round((double) numBits / expectedInsertions * ln2));
+    }
+
+    private BloomFilter(long[] words, int numHashes) {
+        this.words = new AtomicLongArray(words);
+        this.numBits = (long) words.length * 64;
+        this.numHashes = numHashes;
+    }
+
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = secondHash(hash1);
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, numBits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Adds the value and returns true if any bit was newly set, i.e. the value was definitely not present
+    public boolean put(String value) {
+        long hash1 = hash(value);
+        long hash2 = secondHash(hash1);
+        boolean changed = false;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, numBits);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(index);
+            while ((current & mask) == 0) {
+                if (words.compareAndSet(index, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+                current = words.get(index);
+            }
+        }
+        return changed;
+    }
+
+    public long sizeInBytes() {
+        return numBits / 8;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(numHashes);
+        out.writeInt(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    public static BloomFilter readFrom(DataInputStream in) throws IOException {
+        int numHashes = in.readInt();
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        return new BloomFilter(words, numHashes);
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars, finalised with the MurmurHash3 mixer to spread the low bits
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // Odd, so the probe sequence hash1 + i * hash2 visits distinct bits
+    private static long secondHash(long hash1) {
+        return mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1L;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
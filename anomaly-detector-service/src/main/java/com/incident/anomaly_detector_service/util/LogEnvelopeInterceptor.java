@@ -0,0 +1,67 @@
+package com.incident.anomaly_detector_service.util;
+
+import com.incident.anomaly_detector_service.model.LogEnvelope;
+import com.incident.anomaly_detector_service.model.LogEvent;
+import org.apache.kafka.clients.consumer.ConsumerInterceptor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Replaces each envelope record in a poll with one record per packed event, all at the envelope's offset, so
+// listeners, retries and replays only ever see single LogEvents. Offsets are committed per envelope: with MANUAL
+// acks, and with a transaction per poll in batch mode, the container commits after the whole poll has been
+// handled, so an envelope is never half acknowledged. A transaction per record would commit past the envelope
+// after its first event, so KafkaConfig refuses record mode with transactions.
+public class LogEnvelopeInterceptor implements ConsumerInterceptor<String, LogEvent> {
+
+    @Override
+    public ConsumerRecords<String, LogEvent> onConsume(ConsumerRecords<String, LogEvent> records) {
+        boolean hasEnvelope = false;
+        for (ConsumerRecord<String, LogEvent> record : records) {
+            if (record.value() instanceof LogEnvelope) {
+                hasEnvelope = true;
+                break;
+            }
+        }
+        if (!hasEnvelope) {
+            return records;
+        }
+
+        Map<TopicPartition, List<ConsumerRecord<String, LogEvent>>> expanded = new HashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, LogEvent>> partitionRecords = new ArrayList<>();
+            for (ConsumerRecord<String, LogEvent> record : records.records(partition)) {
+                if (!(record.value() instanceof LogEnvelope envelope)) {
+                    partitionRecords.add(record);
+                    continue;
+                }
+                for (LogEvent logEvent : envelope.getEvents()) {
+                    partitionRecords.add(new ConsumerRecord<>(record.topic(), record.partition(), record.offset(),
+                            record.timestamp(), record.timestampType(), record.serializedKeySize(),
+                            record.serializedValueSize(), record.key(), logEvent, record.headers(),
+                            record.leaderEpoch()));
+                }
+            }
+            expanded.put(partition, partitionRecords);
+        }
+        return new ConsumerRecords<>(expanded);
+    }
+
+    @Override
+    public void onCommit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+}
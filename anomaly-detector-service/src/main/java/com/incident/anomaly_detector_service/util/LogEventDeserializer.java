@@ -0,0 +1,46 @@
+package com.incident.anomaly_detector_service.util;
+
+import com.incident.anomaly_detector_service.model.LogEnvelope;
+import com.incident.anomaly_detector_service.model.LogEvent;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.charset.StandardCharsets;
+
+// Reads LogEvent records in any wire format: WireCodec or an envelope of many events when the content-type header
+// says so, JSON otherwise (records from producers that predate the header, or that still run with wire.format=json)
+public class LogEventDeserializer implements Deserializer<LogEvent> {
+
+    private final JsonDeserializer<LogEvent> json = new JsonDeserializer<>(LogEvent.class, false);
+
+    @Override
+    public LogEvent deserialize(String topic, byte[] data) {
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public LogEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        Header contentTypeHeader = headers.lastHeader(WireCodec.CONTENT_TYPE_HEADER);
+        String contentType = contentTypeHeader != null
+                ? new String(contentTypeHeader.value(), StandardCharsets.UTF_8)
+                : null;
+        if (WireCodec.isBinary(contentType)) {
+            return WireCodec.decodeLogEvent(data);
+        }
+        if (WireCodec.isEnvelope(contentType)) {
+            // Expanded into one record per event by LogEnvelopeInterceptor before any listener sees it
+            return new LogEnvelope(WireCodec.decodeEnvelope(data));
+        }
+        return json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
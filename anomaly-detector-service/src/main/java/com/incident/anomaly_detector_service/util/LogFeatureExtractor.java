@@ -0,0 +1,152 @@
+package com.incident.anomaly_detector_service.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Computes the message pattern counts and entropy that ai-service's FeatureExtractor derives, so they can be
+// shipped with the scoring request instead of being recomputed in pandas. The patterns mirror the Python ones.
+// Matchers and counting buffers are reused per thread, so extract() allocates nothing on the hot path.
+public final class LogFeatureExtractor {
+
+    // Order of the values written by extract(); names match the Python feature names
+    public static final List<String> FEATURE_NAMES = List.of(
+            "pattern_ip_address_count",
+            "pattern_email_count",
+            "pattern_url_count",
+            "pattern_uuid_count",
+            "pattern_number_count",
+            "pattern_stack_trace_count",
+            "pattern_exception_count",
+            "message_entropy");
+
+    public static final int IP_ADDRESS_COUNT = 0;
+    public static final int EMAIL_COUNT = 1;
+    public static final int URL_COUNT = 2;
+    public static final int UUID_COUNT = 3;
+    public static final int NUMBER_COUNT = 4;
+    public static final int STACK_TRACE_COUNT = 5;
+    public static final int EXCEPTION_COUNT = 6;
+    public static final int MESSAGE_ENTROPY = 7;
+
+    private static final Pattern[] PATTERNS = {
+            Pattern.compile("\\b(?:[0-9]{1,3}\\.){3}[0-9]{1,3}\\b"),
+            Pattern.compile("\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b"),
+            Pattern.compile("http[s]?://(?:[a-zA-Z]|[0-9]|[$-_@.&+]|[!*\\\\(\\\\),]|(?:%[0-9a-fA-F][0-9a-fA-F]))+"),
+            Pattern.compile("\\b[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\b"),
+            Pattern.compile("\\b\\d+\\b"),
+            Pattern.compile("at\\s+[\\w.$]+\\([\\w.:]*\\)"),
+            Pattern.compile("Exception|Error|Throwable", Pattern.CASE_INSENSITIVE)
+    };
+
+    private static final double LN_2 = Math.log(2);
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private LogFeatureExtractor() {
+    }
+
+    // Writes FEATURE_NAMES.size() values into features
+    public static void extract(String message, double[] features) {
+        String text = message != null ? message : "";
+        Scratch scratch = SCRATCH.get();
+        for (int i = 0; i < PATTERNS.length; i++) {
+            Matcher matcher = scratch.matchers[i].reset(text);
+            int count = 0;
+            while (matcher.find()) {
+                count++;
+            }
+            features[i] = count;
+        }
+        features[MESSAGE_ENTROPY] = entropy(text, scratch);
+    }
+
+    public static Map<String, Double> extract(String message) {
+        double[] features = new double[FEATURE_NAMES.size()];
+        extract(message, features);
+        Map<String, Double> named = new HashMap<>(FEATURE_NAMES.size() * 2);
+        for (int i = 0; i < features.length; i++) {
+            named.put(FEATURE_NAMES.get(i), features[i]);
+        }
+        return named;
+    }
+
+    // Shannon entropy in bits per character. ASCII is counted in a reused table; other characters are
+    // sorted in a reused buffer and counted in runs.
+    private static double entropy(String text, Scratch scratch) {
+        int length = text.length();
+        if (length == 0) {
+            return 0.0;
+        }
+
+        int[] ascii = scratch.asciiCounts;
+        int otherCount = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < ascii.length) {
+                ascii[c]++;
+            } else {
+                otherCount++;
+            }
+        }
+
+        double entropy = 0.0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            // Each table entry is consumed (and reset) the first time its character is seen
+            if (c < ascii.length && ascii[c] > 0) {
+                entropy -= term(ascii[c], length);
+                ascii[c] = 0;
+            }
+        }
+
+        if (otherCount > 0) {
+            char[] others = scratch.otherChars(otherCount);
+            int n = 0;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= ascii.length) {
+                    others[n++] = c;
+                }
+            }
+            Arrays.sort(others, 0, n);
+            int run = 1;
+            for (int i = 1; i <= n; i++) {
+                if (i < n && others[i] == others[i - 1]) {
+                    run++;
+                } else {
+                    entropy -= term(run, length);
+                    run = 1;
+                }
+            }
+        }
+        return entropy;
+    }
+
+    private static double term(int count, int length) {
+        double p = (double) count / length;
+        return p * Math.log(p) / LN_2;
+    }
+
+    private static final class Scratch {
+        private final Matcher[] matchers = new Matcher[PATTERNS.length];
+        private final int[] asciiCounts = new int[128];
+        private char[] others = new char[64];
+
+        private Scratch() {
+            for (int i = 0; i < PATTERNS.length; i++) {
+                matchers[i] = PATTERNS[i].matcher("");
+            }
+        }
+
+        private char[] otherChars(int size) {
+            if (others.length < size) {
+                others = new char[Math.max(size, others.length * 2)];
+            }
+            return others;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.incident.anomaly_detector_service.util;
+
+import java.util.regex.Pattern;
+
+// Reduces a log message to its shape by masking the variable parts (ids, addresses, numbers)
+public final class LogTemplates {
+
+    private static final Pattern UUID = Pattern.compile(
+            "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+    private static final Pattern IP_ADDRESS = Pattern.compile(
+            "\\b(?:[0-9]{1,3}\\.){3}[0-9]{1,3}(?::[0-9]{1,5})?\\b");
+    private static final Pattern EMAIL = Pattern.compile(
+            "\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}\\b");
+    private static final Pattern HEX = Pattern.compile(
+            "\\b(?:0x[0-9a-fA-F]+|(?=[0-9a-fA-F]*[0-9])[0-9a-fA-F]{8,})\\b");
+    private static final Pattern NUMBER = Pattern.compile(
+            "\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private LogTemplates() {
+    }
+
+    public static String templateOf(String message) {
+        if (message == null || message.isEmpty()) {
+            return "";
+        }
+        // Order matters: UUIDs and IPs contain numbers, so they are masked before bare numbers
+        String template = UUID.matcher(message).replaceAll("<uuid>");
+        template = IP_ADDRESS.matcher(template).replaceAll("<ip>");
+        template = EMAIL.matcher(template).replaceAll("<email>");
+        template = HEX.matcher(template).replaceAll("<hex>");
+        template = NUMBER.matcher(template).replaceAll("<num>");
+        return WHITESPACE.matcher(template).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,71 @@
+package com.incident.anomaly_detector_service.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size ring of time buckets updated with CAS only. Each slot packs the bucket stamp (high 32 bits)
+// and its count (low 32 bits) into one long, so a slot is reset and incremented in a single atomic step.
+public final class SlidingWindowCounter {
+
+    private static final long LOW_BITS = 0xFFFFFFFFL;
+
+    private final AtomicLongArray slots;
+    private final long firstBucket;
+    // Trailing average of the completed buckets, recomputed by whichever thread opens a new bucket
+    private final AtomicLong trailingMeanBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicLong alertedBucket = new AtomicLong(Long.MIN_VALUE);
+
+    public SlidingWindowCounter(int buckets, long firstBucket) {
+        if (buckets < 2) {
+            throw new IllegalArgumentException("A sliding window needs at least 2 buckets");
+        }
+        this.slots = new AtomicLongArray(buckets);
+        this.firstBucket = firstBucket;
+    }
+
+    // Counts one event in the given bucket and returns the bucket's count including it
+    public long increment(long bucket) {
+        int slot = (int) Math.floorMod(bucket, (long) slots.length());
+        long stamp = bucket & LOW_BITS;
+        while (true) {
+            long current = slots.get(slot);
+            boolean sameBucket = (current >>> 32) == stamp;
+            // Counts saturate rather than spill into the stamp bits
+            long next = sameBucket ? Math.min(current + 1, (stamp << 32) | LOW_BITS) : (stamp << 32) | 1L;
+            if (slots.compareAndSet(slot, current, next)) {
+                if (!sameBucket) {
+                    trailingMeanBits.set(Double.doubleToRawLongBits(computeTrailingMean(bucket)));
+                }
+                return next & LOW_BITS;
+            }
+        }
+    }
+
+    public double trailingMean() {
+        return Double.longBitsToDouble(trailingMeanBits.get());
+    }
+
+    // The trailing average is only meaningful once the key has been tracked for a whole window
+    public boolean isWarm(long bucket) {
+        return bucket - firstBucket >= slots.length() - 1;
+    }
+
+    // Returns true for exactly one caller per bucket
+    public boolean markAlerted(long bucket) {
+        long previous = alertedBucket.get();
+        return previous < bucket && alertedBucket.compareAndSet(previous, bucket);
+    }
+
+    private double computeTrailingMean(long bucket) {
+        int window = slots.length() - 1;
+        long sum = 0;
+        for (long b = bucket - window; b < bucket; b++) {
+            long value = slots.get((int) Math.floorMod(b, (long) slots.length()));
+            // Slots not written since the window moved past them hold an older stamp and count as empty
+            if ((value >>> 32) == (b & LOW_BITS)) {
+                sum += value & LOW_BITS;
+            }
+        }
+        return (double) sum / window;
+    }
+}
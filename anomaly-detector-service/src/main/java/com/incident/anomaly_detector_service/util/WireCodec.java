@@ -0,0 +1,375 @@
+package com.incident.anomaly_detector_service.util;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact binary encoding of LogEvent and ScoredLogEvent, used on logs.raw and logs.scored when wire.format=binary.
+// Fields are written in declaration order behind a presence bitmask: strings as varint length + UTF-8, the level
+// as its ordinal, timestamps as UTC epoch seconds + nanos, and metadata values with a one-byte type tag.
+// Adding a field means a new VERSION; readers reject versions they do not know. log-collector-service and
+// alert-manager-service carry copies for the side of the format they use; keep all three in step. WireCodecTests
+// pins the ScoredLogEvent bytes that alert-manager-service's WireCodecTests decodes.
+public final class WireCodec {
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String BINARY_CONTENT_TYPE = "application/x-incident-log-v1";
+    // Many LogEvents of one service in a single record: a count, then each event as encode(LogEvent) writes it.
+    // Only log-collector-service packs envelopes; this side only unpacks them.
+    public static final String ENVELOPE_CONTENT_TYPE = "application/x-incident-log-envelope-v1";
+
+    private static final byte VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_TRUE = 4;
+    private static final byte TAG_FALSE = 5;
+    private static final byte TAG_MAP = 6;
+    private static final byte TAG_LIST = 7;
+
+    private static final LogEvent.LogLevel[] LEVELS = LogEvent.LogLevel.values();
+
+    private WireCodec() {
+    }
+
+    public static byte[] encode(LogEvent event) {
+        Writer out = new Writer(256);
+        out.writeByte(VERSION);
+        writeLogFields(out, event.getId(), event.getServiceName(), event.getHostname(), event.getPodName(),
+                event.getLevel(), event.getMessage(), event.getStackTrace(), event.getTimestamp(),
+                event.getMetadata(), event.getTraceId(), event.getSpanId());
+        return out.toByteArray();
+    }
+
+    public static LogEvent decodeLogEvent(byte[] data) {
+        return readLogEvent(ByteBuffer.wrap(data));
+    }
+
+    public static List<LogEvent> decodeEnvelope(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        checkVersion(in);
+        int count = readVarInt(in);
+        List<LogEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(readLogEvent(in));
+        }
+        return events;
+    }
+
+    public static byte[] encode(ScoredLogEvent event) {
+        Writer out = new Writer(384);
+        out.writeByte(VERSION);
+        writeLogFields(out, event.getId(), event.getServiceName(), event.getHostname(), event.getPodName(),
+                event.getLevel(), event.getMessage(), event.getStackTrace(), event.getTimestamp(),
+                event.getMetadata(), event.getTraceId(), event.getSpanId());
+
+        int present = (event.isAnomaly() ? 1 : 0)
+                | bit(event.getAnomalyReasons(), 1)
+                | bit(event.getFeatureScores(), 2)
+                | bit(event.getAnomalyType(), 3)
+                | bit(event.getScoredAt(), 4);
+        out.writeVarInt(present);
+        out.writeDouble(event.getAnomalyScore());
+        if (event.getAnomalyReasons() != null) {
+            out.writeVarInt(event.getAnomalyReasons().size());
+            event.getAnomalyReasons().forEach(out::writeString);
+        }
+        if (event.getFeatureScores() != null) {
+            out.writeVarInt(event.getFeatureScores().size());
+            event.getFeatureScores().forEach((name, score) -> {
+                out.writeString(name);
+                out.writeDouble(score != null ? score : Double.NaN);
+            });
+        }
+        if (event.getAnomalyType() != null) {
+            out.writeString(event.getAnomalyType());
+        }
+        if (event.getScoredAt() != null) {
+            writeTimestamp(out, event.getScoredAt());
+        }
+        return out.toByteArray();
+    }
+
+    public static ScoredLogEvent decodeScoredLogEvent(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        LogEvent logEvent = readLogEvent(in);
+
+        int present = readVarInt(in);
+        ScoredLogEvent.ScoredLogEventBuilder builder = ScoredLogEvent.fromLogEvent(logEvent)
+                .isAnomaly(has(present, 0))
+                .anomalyScore(in.getDouble());
+        if (has(present, 1)) {
+            int size = readVarInt(in);
+            List<String> reasons = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                reasons.add(readString(in));
+            }
+            builder.anomalyReasons(reasons);
+        }
+        if (has(present, 2)) {
+            int size = readVarInt(in);
+            Map<String, Double> featureScores = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                featureScores.put(readString(in), in.getDouble());
+            }
+            builder.featureScores(featureScores);
+        }
+        if (has(present, 3)) {
+            builder.anomalyType(readString(in));
+        }
+        if (has(present, 4)) {
+            builder.scoredAt(readTimestamp(in));
+        }
+        return builder.build();
+    }
+
+    public static boolean isBinary(String contentType) {
+        return BINARY_CONTENT_TYPE.equals(contentType);
+    }
+
+    public static boolean isEnvelope(String contentType) {
+        return ENVELOPE_CONTENT_TYPE.equals(contentType);
+    }
+
+    private static void writeLogFields(Writer out, String id, String serviceName, String hostname, String podName,
+                                       LogEvent.LogLevel level, String message, String stackTrace,
+                                       LocalDateTime timestamp, Map<String, Object> metadata,
+                                       String traceId, String spanId) {
+        int present = bit(id, 0) | bit(serviceName, 1) | bit(hostname, 2) | bit(podName, 3) | bit(level, 4)
+                | bit(message, 5) | bit(stackTrace, 6) | bit(timestamp, 7) | bit(metadata, 8)
+                | bit(traceId, 9) | bit(spanId, 10);
+        out.writeVarInt(present);
+        writeIfPresent(out, id);
+        writeIfPresent(out, serviceName);
+        writeIfPresent(out, hostname);
+        writeIfPresent(out, podName);
+        if (level != null) {
+            out.writeByte((byte) level.ordinal());
+        }
+        writeIfPresent(out, message);
+        writeIfPresent(out, stackTrace);
+        if (timestamp != null) {
+            writeTimestamp(out, timestamp);
+        }
+        if (metadata != null) {
+            writeMap(out, metadata);
+        }
+        writeIfPresent(out, traceId);
+        writeIfPresent(out, spanId);
+    }
+
+    private static LogEvent readLogEvent(ByteBuffer in) {
+        checkVersion(in);
+        int present = readVarInt(in);
+        return LogEvent.builder()
+                .id(has(present, 0) ? readString(in) : null)
+                .serviceName(has(present, 1) ? readString(in) : null)
+                .hostname(has(present, 2) ? readString(in) : null)
+                .podName(has(present, 3) ? readString(in) : null)
+                .level(has(present, 4) ? LEVELS[in.get()] : null)
+                .message(has(present, 5) ? readString(in) : null)
+                .stackTrace(has(present, 6) ? readString(in) : null)
+                .timestamp(has(present, 7) ? readTimestamp(in) : null)
+                .metadata(has(present, 8) ? readMap(in) : null)
+                .traceId(has(present, 9) ? readString(in) : null)
+                .spanId(has(present, 10) ? readString(in) : null)
+                .build();
+    }
+
+    private static void writeIfPresent(Writer out, String value) {
+        if (value != null) {
+            out.writeString(value);
+        }
+    }
+
+    private static void writeTimestamp(Writer out, LocalDateTime timestamp) {
+        out.writeVarLong(zigZag(timestamp.toEpochSecond(ZoneOffset.UTC)));
+        out.writeVarInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(ByteBuffer in) {
+        long epochSecond = unZigZag(readVarLong(in));
+        return LocalDateTime.ofEpochSecond(epochSecond, readVarInt(in), ZoneOffset.UTC);
+    }
+
+    private static void writeMap(Writer out, Map<?, ?> map) {
+        out.writeVarInt(map.size());
+        map.forEach((key, value) -> {
+            out.writeString(String.valueOf(key));
+            writeValue(out, value);
+        });
+    }
+
+    private static Map<String, Object> readMap(ByteBuffer in) {
+        int size = readVarInt(in);
+        Map<String, Object> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readValue(in));
+        }
+        return map;
+    }
+
+    private static void writeValue(Writer out, Object value) {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(bool ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_LONG);
+            out.writeVarLong(zigZag(((Number) value).longValue()));
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(TAG_MAP);
+            writeMap(out, map);
+        } else if (value instanceof Iterable<?> iterable) {
+            List<Object> items = new ArrayList<>();
+            iterable.forEach(items::add);
+            out.writeByte(TAG_LIST);
+            out.writeVarInt(items.size());
+            items.forEach(item -> writeValue(out, item));
+        } else {
+            // Anything else (BigDecimal, dates, ...) travels as its string form, as it would once it is in JSON
+            out.writeByte(TAG_STRING);
+            out.writeString(value.toString());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_STRING -> readString(in);
+            case TAG_LONG -> {
+                // Matches Jackson, which reads small integers as Integer
+                long value = unZigZag(readVarLong(in));
+                yield value == (int) value ? (Object) (int) value : (Object) value;
+            }
+            case TAG_DOUBLE -> in.getDouble();
+            case TAG_TRUE -> Boolean.TRUE;
+            case TAG_FALSE -> Boolean.FALSE;
+            case TAG_MAP -> readMap(in);
+            case TAG_LIST -> {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                yield list;
+            }
+            default -> throw new IllegalArgumentException("Unknown metadata value tag: " + tag);
+        };
+    }
+
+    private static void checkVersion(ByteBuffer in) {
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported wire format version: " + version);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static boolean has(int present, int field) {
+        return (present & (1 << field)) != 0;
+    }
+
+    private static int bit(Object value, int field) {
+        return value != null ? 1 << field : 0;
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int size;
+
+        private Writer(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        private void writeByte(byte b) {
+            ensureCapacity(1);
+            buffer[size++] = b;
+        }
+
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeDouble(double value) {
+            ensureCapacity(8);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (bits >>> shift);
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.incident.anomaly_detector_service.util;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Producer value serializer: LogEvent and ScoredLogEvent are written with WireCodec when the producer property
+// wire.format is 'binary', tagged with a content-type header; everything else (and 'json') goes through Jackson.
+// Consumers pick the decoder from the header, so both formats can share a topic during a rollout.
+public class WireFormatSerializer implements Serializer<Object> {
+
+    public static final String WIRE_FORMAT_CONFIG = "wire.format";
+
+    private static final byte[] BINARY_CONTENT_TYPE = WireCodec.BINARY_CONTENT_TYPE.getBytes(StandardCharsets.UTF_8);
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+    private boolean binary;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        binary = "binary".equalsIgnoreCase(String.valueOf(configs.get(WIRE_FORMAT_CONFIG)));
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (binary && data instanceof ScoredLogEvent scoredLogEvent) {
+            headers.add(WireCodec.CONTENT_TYPE_HEADER, BINARY_CONTENT_TYPE);
+            return WireCodec.encode(scoredLogEvent);
+        }
+        if (binary && data instanceof LogEvent logEvent) {
+            headers.add(WireCodec.CONTENT_TYPE_HEADER, BINARY_CONTENT_TYPE);
+            return WireCodec.encode(logEvent);
+        }
+        return json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
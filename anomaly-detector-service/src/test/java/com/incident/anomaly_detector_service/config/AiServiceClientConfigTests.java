@@ -0,0 +1,22 @@
+package com.incident.anomaly_detector_service.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class AiServiceClientConfigTests {
+
+	@Test
+	void autoHedgesOnlyWithASecondReplica() {
+		assertThat(AiServiceClientConfig.isHedgingEnabled("auto", 1)).isFalse();
+		assertThat(AiServiceClientConfig.isHedgingEnabled("auto", 2)).isTrue();
+	}
+
+	@Test
+	void explicitSettingWinsOverTheReplicaCount() {
+		assertThat(AiServiceClientConfig.isHedgingEnabled("true", 1)).isTrue();
+		assertThat(AiServiceClientConfig.isHedgingEnabled("false", 3)).isFalse();
+		assertThatIllegalStateException().isThrownBy(() -> AiServiceClientConfig.isHedgingEnabled("yes", 2));
+	}
+}
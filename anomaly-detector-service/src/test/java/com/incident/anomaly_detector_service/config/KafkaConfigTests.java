@@ -0,0 +1,59 @@
+package com.incident.anomaly_detector_service.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.transaction.KafkaAwareTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class KafkaConfigTests {
+
+	@Test
+	void recordModeIsRefusedWithTransactions() {
+		KafkaConfig config = config("record");
+
+		// Envelope events share one offset, so a transaction per record would commit past the envelope
+		assertThatIllegalStateException()
+				.isThrownBy(() -> config.kafkaListenerContainerFactory(transactionManager(mock(KafkaAwareTransactionManager.class))))
+				.withMessageContaining("anomaly.consumer.mode=batch");
+	}
+
+	@Test
+	void recordModeWithoutTransactionsAndBatchModeWithTransactionsAreAccepted() {
+		assertThat(config("record").kafkaListenerContainerFactory(transactionManager(null))).isNotNull();
+
+		KafkaAwareTransactionManager<?, ?> transactionManager = mock(KafkaAwareTransactionManager.class);
+		ConcurrentKafkaListenerContainerFactory<?, ?> retryFactory =
+				config("batch").kafkaListenerContainerFactory(transactionManager(transactionManager));
+		ConcurrentKafkaListenerContainerFactory<?, ?> batchFactory =
+				config("batch").batchKafkaListenerContainerFactory(transactionManager(transactionManager));
+
+		assertThat(retryFactory.getContainerProperties().getKafkaAwareTransactionManager()).isSameAs(transactionManager);
+		assertThat(batchFactory.getContainerProperties().getKafkaAwareTransactionManager()).isSameAs(transactionManager);
+	}
+
+	private static KafkaConfig config(String consumerMode) {
+		KafkaConfig config = new KafkaConfig();
+		ReflectionTestUtils.setField(config, "bootstrapServers", "localhost:9092");
+		ReflectionTestUtils.setField(config, "groupId", "anomaly-detector");
+		ReflectionTestUtils.setField(config, "consumerMode", consumerMode);
+		ReflectionTestUtils.setField(config, "concurrency", 1);
+		return config;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ObjectProvider<KafkaAwareTransactionManager<?, ?>> transactionManager(
+			KafkaAwareTransactionManager<?, ?> transactionManager) {
+		ObjectProvider<KafkaAwareTransactionManager<?, ?>> provider = mock(ObjectProvider.class);
+		doReturn(transactionManager).when(provider).getIfAvailable();
+		doCallRealMethod().when(provider).ifAvailable(any());
+		return provider;
+	}
+}
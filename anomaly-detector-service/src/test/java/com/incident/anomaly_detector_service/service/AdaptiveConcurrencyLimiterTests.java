@@ -0,0 +1,89 @@
+package com.incident.anomaly_detector_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+
+	private static final long FAST_NANOS = 10_000_000;
+
+	@Test
+	void shedsOnceTheLimitIsInFlight() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, 2.0);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+		assertThat(limiter.getInFlight()).isEqualTo(2);
+	}
+
+	@Test
+	void growsWhileLatencyHoldsAndTheLimitIsUsed() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, 2.0);
+		limiter.tryAcquire();
+		limiter.tryAcquire();
+
+		limiter.onSuccess(FAST_NANOS);
+
+		assertThat(limiter.getLimit()).isEqualTo(3);
+	}
+
+	@Test
+	void doesNotGrowWhileMostlyIdle() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 0.5, 2.0);
+		limiter.tryAcquire();
+
+		limiter.onSuccess(FAST_NANOS);
+
+		assertThat(limiter.getLimit()).isEqualTo(4);
+	}
+
+	@Test
+	void backsOffWhenLatencyRisesPastTolerance() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 10, 0.5, 2.0);
+		limiter.tryAcquire();
+		limiter.onSuccess(FAST_NANOS);
+
+		limiter.tryAcquire();
+		limiter.onSuccess(FAST_NANOS * 5);
+
+		assertThat(limiter.getLimit()).isEqualTo(4);
+	}
+
+	@Test
+	void droppedCallsBackOffDownToTheMinimum() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 10, 0.5, 2.0);
+		for (int i = 0; i < 3; i++) {
+			limiter.tryAcquire();
+			limiter.onDropped();
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(2);
+		assertThat(limiter.getInFlight()).isZero();
+	}
+
+	@Test
+	void ignoredCallsOnlyFreeTheirSlot() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, 2.0);
+		limiter.tryAcquire();
+		limiter.tryAcquire();
+
+		limiter.onIgnored();
+
+		assertThat(limiter.getLimit()).isEqualTo(2);
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void neverGrowsPastTheMaximum() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(3, 1, 3, 0.5, 2.0);
+		for (int i = 0; i < 3; i++) {
+			limiter.tryAcquire();
+		}
+
+		limiter.onSuccess(FAST_NANOS);
+
+		assertThat(limiter.getLimit()).isEqualTo(3);
+	}
+}
@@ -0,0 +1,173 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Checks the /predict/anomaly and /predict/batch contract against ai-service/models/log_event.py (LogEvent in, AnomalyResult out)
+class AiScoringEngineTests {
+
+	// Required fields of the pydantic LogEvent
+	private static final List<String> REQUIRED_FIELDS =
+			List.of("log_id", "timestamp", "service_name", "hostname", "log_level", "message");
+
+	// An AnomalyResult as ai-service serialises it
+	private static final String ANOMALY_RESULT = """
+			{
+			  "log_id": "log-1",
+			  "is_anomaly": true,
+			  "anomaly_score": 0.85,
+			  "confidence": 0.7,
+			  "anomaly_type": "error_spike",
+			  "anomaly_reasons": ["Error level log", "Exception detected in message"],
+			  "features_analyzed": ["log_level_severity", "message_entropy"],
+			  "model_version": "1.0.0",
+			  "processing_time_ms": 3.2,
+			  "threshold_used": 0.7,
+			  "similar_patterns": [],
+			  "recommendations": [],
+			  "metadata": {
+			    "model_predictions": {"isolation_forest": true},
+			    "individual_scores": {"isolation_forest": 0.9, "one_class_svm": 0.8},
+			    "feature_count": 14
+			  }
+			}
+			""";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void batchRequestUsesTheAiServiceFieldNames() throws Exception {
+		List<LogEvent> batch = List.of(
+				LogEvent.builder()
+						.id("log-1")
+						.serviceName("payment-service")
+						.hostname("payment-0")
+						.level(LogEvent.LogLevel.ERROR)
+						.message("Payment failed for 10.0.0.1: NullPointerException")
+						.timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+						.metadata(Map.of("region", "eu-west-1"))
+						.traceId("trace-1")
+						.build(),
+				// Only what log-collector guarantees; the required fields must still be present
+				LogEvent.builder()
+						.serviceName("auth-service")
+						.level(LogEvent.LogLevel.INFO)
+						.build());
+
+		String json = objectMapper.writeValueAsString(batch.stream().map(AiScoringEngine::buildAIRequest).toList());
+		List<Map<String, Object>> requests = objectMapper.readValue(json, new TypeReference<>() {
+		});
+
+		for (Map<String, Object> request : requests) {
+			for (String field : REQUIRED_FIELDS) {
+				assertThat(request.get(field)).as(field).isNotNull();
+			}
+			assertThat(request).doesNotContainKeys("id", "service", "level");
+		}
+
+		Map<String, Object> first = requests.get(0);
+		assertThat(first).containsEntry("log_id", "log-1")
+				.containsEntry("service_name", "payment-service")
+				.containsEntry("hostname", "payment-0")
+				.containsEntry("log_level", "ERROR")
+				.containsEntry("timestamp", "2024-01-01T12:00:00")
+				.containsEntry("request_id", "trace-1");
+		assertThat((Map<String, Object>) first.get("precomputed_features"))
+				.containsEntry("pattern_ip_address_count", 1.0)
+				.containsEntry("pattern_exception_count", 1.0);
+
+		Map<String, Object> second = requests.get(1);
+		assertThat(second).containsEntry("hostname", "unknown").containsEntry("message", "");
+	}
+
+	@Test
+	void configuredEndpointsAreTheAiServiceRoutes() {
+		YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+		yaml.setResources(new ClassPathResource("application.yml"));
+		Properties properties = yaml.getObject();
+
+		// Routes declared in ai-service/main.py
+		assertThat(properties.getProperty("ai.service.endpoint")).isEqualTo("/predict/anomaly");
+		assertThat(properties.getProperty("ai.service.batch-endpoint")).isEqualTo("/predict/batch");
+	}
+
+	@Test
+	void singleEventRequestHasTheBatchEntryShape() throws Exception {
+		AiServiceClient aiServiceClient = mock(AiServiceClient.class);
+		when(aiServiceClient.detect(any())).thenReturn(Mono.just(
+				objectMapper.readValue(ANOMALY_RESULT, new TypeReference<Map<String, Object>>() {
+				})));
+		TemplateScoreCache templateScoreCache = mock(TemplateScoreCache.class);
+		when(templateScoreCache.get(any())).thenReturn(null);
+		AiScoringEngine engine = new AiScoringEngine(aiServiceClient, templateScoreCache);
+		ReflectionTestUtils.setField(engine, "anomalyThreshold", 0.7);
+		LogEvent logEvent = LogEvent.builder()
+				.id("log-1")
+				.serviceName("payment-service")
+				.level(LogEvent.LogLevel.ERROR)
+				.message("Payment failed")
+				.timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+				.build();
+
+		ScoredLogEvent scored = engine.score(logEvent).block();
+
+		verify(aiServiceClient).detect(AiScoringEngine.buildAIRequest(logEvent));
+		assertThat(scored.getAnomalyScore()).isEqualTo(0.85);
+	}
+
+	@Test
+	void anomalyResultIsMappedFromTheAiServiceFieldNames() throws Exception {
+		AiScoringEngine engine = new AiScoringEngine(null, null);
+		ReflectionTestUtils.setField(engine, "anomalyThreshold", 0.7);
+		LogEvent logEvent = LogEvent.builder().id("log-1").serviceName("payment-service").build();
+
+		ScoredLogEvent scored = engine.mapToScoredLogEvent(logEvent,
+				objectMapper.readValue(ANOMALY_RESULT, new TypeReference<>() {
+				}));
+
+		assertThat(scored.getAnomalyScore()).isEqualTo(0.85);
+		assertThat(scored.isAnomaly()).isTrue();
+		assertThat(scored.getAnomalyType()).isEqualTo("error_spike");
+		assertThat(scored.getAnomalyReasons())
+				.containsExactly("Error level log", "Exception detected in message");
+		assertThat(scored.getFeatureScores())
+				.containsEntry("isolation_forest", 0.9)
+				.containsEntry("one_class_svm", 0.8);
+	}
+
+	@Test
+	void normalResultWithoutAnomalyTypeIsUnknown() {
+		AiScoringEngine engine = new AiScoringEngine(null, null);
+		ReflectionTestUtils.setField(engine, "anomalyThreshold", 0.7);
+		Map<String, Object> result = new HashMap<>();
+		result.put("anomaly_score", 0.1);
+		result.put("anomaly_type", null);
+		result.put("anomaly_reasons", List.of());
+
+		ScoredLogEvent scored = engine.mapToScoredLogEvent(LogEvent.builder().id("log-2").build(), result);
+
+		assertThat(scored.isAnomaly()).isFalse();
+		assertThat(scored.getAnomalyType()).isEqualTo("unknown");
+		assertThat(scored.getFeatureScores()).isEmpty();
+	}
+}
@@ -0,0 +1,95 @@
+package com.incident.anomaly_detector_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTests {
+
+	private static final long LONG_OPEN_MILLIS = 60_000;
+
+	@Test
+	void staysClosedUntilMinimumCalls() {
+		CircuitBreaker breaker = new CircuitBreaker("ai-service", 0.5, 10, 5, LONG_OPEN_MILLIS, 2);
+		fail(breaker, 4);
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+	}
+
+	@Test
+	void opensAtTheFailureRateAndRejectsCalls() {
+		CircuitBreaker breaker = new CircuitBreaker("ai-service", 0.5, 10, 4, LONG_OPEN_MILLIS, 2);
+		breaker.onSuccess();
+		breaker.onSuccess();
+		fail(breaker, 2);
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquirePermission()).isFalse();
+	}
+
+	@Test
+	void onlyTheLastWindowOfCallsCounts() {
+		CircuitBreaker breaker = new CircuitBreaker("ai-service", 0.5, 4, 4, LONG_OPEN_MILLIS, 2);
+		fail(breaker, 1);
+		for (int i = 0; i < 4; i++) {
+			breaker.onSuccess();
+		}
+		// The first failure has left the window, so this is one failure in four
+		fail(breaker, 1);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+		fail(breaker, 1);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void closesOnceEveryProbeSucceeds() {
+		CircuitBreaker breaker = openBreaker(2);
+
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+		assertThat(breaker.tryAcquirePermission()).as("only two probes").isFalse();
+
+		breaker.onSuccess();
+		breaker.onSuccess();
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void failedProbeReopens() {
+		CircuitBreaker breaker = openBreaker(2);
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+
+		breaker.onFailure();
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void releasedProbeCanBeTakenAgain() {
+		CircuitBreaker breaker = openBreaker(1);
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+		assertThat(breaker.tryAcquirePermission()).isFalse();
+
+		breaker.releasePermission();
+
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+	}
+
+	// Opens with a zero open duration, so the next permission request moves it to half-open
+	private static CircuitBreaker openBreaker(int halfOpenProbes) {
+		CircuitBreaker breaker = new CircuitBreaker("ai-service", 0.5, 4, 2, 0, halfOpenProbes);
+		fail(breaker, 2);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		return breaker;
+	}
+
+	private static void fail(CircuitBreaker breaker, int times) {
+		for (int i = 0; i < times; i++) {
+			breaker.onFailure();
+		}
+	}
+}
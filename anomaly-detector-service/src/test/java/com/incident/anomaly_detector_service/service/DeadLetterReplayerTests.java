@@ -0,0 +1,93 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeadLetterReplayerTests {
+
+	private static final String DEAD_LETTER_TOPIC = "logs.raw.dlt";
+	private static final TopicPartition PARTITION = new TopicPartition(DEAD_LETTER_TOPIC, 0);
+
+	private final MockConsumer<String, LogEvent> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+	@SuppressWarnings("unchecked")
+	private final ConsumerFactory<String, LogEvent> consumerFactory = mock(ConsumerFactory.class);
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, LogEvent> kafkaTemplate = mock(KafkaTemplate.class);
+	private final FailedLogRouter failedLogRouter = mock(FailedLogRouter.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final DeadLetterReplayer replayer =
+			new DeadLetterReplayer(consumerFactory, kafkaTemplate, failedLogRouter, meterRegistry);
+
+	@Test
+	void unreadableRecordsFailTheJobAndAreCounted() {
+		when(consumerFactory.createConsumer(anyString(), anyString())).thenReturn(consumer);
+		when(kafkaTemplate.send(anyString(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+		when(failedLogRouter.getDeadLetterTopic()).thenReturn(DEAD_LETTER_TOPIC);
+		ReflectionTestUtils.setField(replayer, "logsRawTopic", "logs.raw");
+		ReflectionTestUtils.setField(replayer, "groupId", "anomaly-detector-group");
+		ReflectionTestUtils.setField(replayer, "replayRatePerSecond", 10_000.0);
+
+		consumer.updatePartitions(DEAD_LETTER_TOPIC,
+				List.of(new PartitionInfo(DEAD_LETTER_TOPIC, 0, Node.noNode(), new Node[0], new Node[0])));
+		consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+		consumer.updateEndOffsets(Map.of(PARTITION, 3L));
+		// ErrorHandlingDeserializer hands over a null value for a record it could not read
+		consumer.schedulePollTask(() -> {
+			consumer.addRecord(record(0, event("checkout-0")));
+			consumer.addRecord(record(1, null));
+			consumer.addRecord(record(2, event("checkout-2")));
+		});
+
+		DeadLetterReplayer.ReplayJob job = replayer.startReplay(100).orElseThrow();
+		awaitFinished(job);
+
+		assertThat(job.getStatus()).isEqualTo(DeadLetterReplayer.Status.FAILED);
+		assertThat(job.getReplayed()).isEqualTo(2);
+		assertThat(job.getUnreadable()).isEqualTo(1);
+		assertThat(job.getError()).contains("1 dead-lettered records could not be deserialized");
+		verify(kafkaTemplate, times(2)).send(eq("logs.raw"), any(), any());
+		assertThat(meterRegistry.counter("anomaly.retry.events", "stage", "dlt", "outcome", "unreadable").count())
+				.isEqualTo(1.0);
+		replayer.stop();
+	}
+
+	private static ConsumerRecord<String, LogEvent> record(long offset, LogEvent value) {
+		return new ConsumerRecord<>(DEAD_LETTER_TOPIC, 0, offset, "checkout-service", value);
+	}
+
+	private static LogEvent event(String id) {
+		return LogEvent.builder().id(id).serviceName("checkout-service").message("Order placed").build();
+	}
+
+	private static void awaitFinished(DeadLetterReplayer.ReplayJob job) {
+		Instant deadline = Instant.now().plus(Duration.ofSeconds(10));
+		while (job.getStatus() == DeadLetterReplayer.Status.RUNNING && Instant.now().isBefore(deadline)) {
+			Thread.onSpinWait();
+		}
+	}
+}
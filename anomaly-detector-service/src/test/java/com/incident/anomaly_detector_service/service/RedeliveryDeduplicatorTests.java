@@ -0,0 +1,71 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedeliveryDeduplicatorTests {
+
+	private static final long EXPECTED_IDS = 1_000;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final RedeliveryDeduplicator deduplicator = new RedeliveryDeduplicator(meterRegistry);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(deduplicator, "enabled", true);
+		ReflectionTestUtils.setField(deduplicator, "windowMs", 600_000L);
+		ReflectionTestUtils.setField(deduplicator, "expectedIdsPerWindow", EXPECTED_IDS);
+		ReflectionTestUtils.setField(deduplicator, "falsePositiveRate", 0.01);
+		deduplicator.initialize();
+	}
+
+	@Test
+	void overfilledWindowDoesNotReportNewIdsAsSeen() {
+		// Ten windows' worth of ids inside one window-ms
+		deduplicator.markScored(events("scored-", 10 * EXPECTED_IDS));
+
+		long falsePositives = events("new-", 10_000).stream().filter(deduplicator::alreadyScored).count();
+
+		// Each filter stays at its design size, so the two together stay near twice the 1% target
+		assertThat(falsePositives).as("%d of 10000 new ids reported as seen", falsePositives).isLessThan(300);
+		assertThat(meterRegistry.counter("anomaly.dedup.rotations", "reason", "full").count()).isEqualTo(10.0);
+	}
+
+	@Test
+	void idsOfTheLastWindowAreStillRemembered() {
+		List<LogEvent> scored = events("scored-", 3 * EXPECTED_IDS + EXPECTED_IDS / 2);
+		deduplicator.markScored(scored);
+
+		// The last full window and the half-filled current one
+		for (LogEvent logEvent : scored.subList(scored.size() - (int) (EXPECTED_IDS * 3 / 2), scored.size())) {
+			assertThat(deduplicator.alreadyScored(logEvent)).as(logEvent.getId()).isTrue();
+		}
+	}
+
+	@Test
+	void expiredWindowRotatesOnTheTimer() {
+		deduplicator.markScored(events("scored-", 10));
+		ReflectionTestUtils.setField(deduplicator, "windowMs", 0L);
+
+		deduplicator.rotateExpired();
+		deduplicator.rotateExpired();
+
+		assertThat(events("scored-", 10).stream().noneMatch(deduplicator::alreadyScored)).isTrue();
+	}
+
+	private static List<LogEvent> events(String prefix, long count) {
+		List<LogEvent> events = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			events.add(LogEvent.builder().id(prefix + i).build());
+		}
+		return events;
+	}
+}
@@ -0,0 +1,46 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScoringTierPolicyTests {
+
+	private final ScoringTierPolicy policy = new ScoringTierPolicy(new SimpleMeterRegistry());
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(policy, "enabled", true);
+		ReflectionTestUtils.setField(policy, "suspicionThreshold", 0.4);
+		ReflectionTestUtils.setField(policy, "keywords", List.of("exception", "timeout"));
+		ReflectionTestUtils.setField(policy, "allowlistTemplates", List.of());
+		policy.initialize();
+	}
+
+	@Test
+	void levelDecidesTheTierWithoutOtherSignals() {
+		assertThat(policy.tierFor(event(LogEvent.LogLevel.INFO, "Order placed"))).isEqualTo(ScoringTierPolicy.Tier.LOCAL);
+		assertThat(policy.tierFor(event(LogEvent.LogLevel.ERROR, "Order placed"))).isEqualTo(ScoringTierPolicy.Tier.AI);
+	}
+
+	@Test
+	void missingLevelIsTreatedAsInfo() {
+		assertThat(policy.tierFor(event(null, "Order placed"))).isEqualTo(ScoringTierPolicy.Tier.LOCAL);
+		// INFO weight plus a keyword crosses the threshold
+		assertThat(policy.tierFor(event(null, "Upstream timeout"))).isEqualTo(ScoringTierPolicy.Tier.AI);
+	}
+
+	private static LogEvent event(LogEvent.LogLevel level, String message) {
+		return LogEvent.builder()
+				.serviceName("checkout-service")
+				.level(level)
+				.message(message)
+				.build();
+	}
+}
@@ -0,0 +1,50 @@
+package com.incident.anomaly_detector_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShadowScoringServiceTests {
+
+	@Test
+	void onnxShadowWithoutTheOnnxEngineNamesTheSettingToEnable() {
+		ShadowScoringService service = service("onnx", engine(StatisticalScoringEngine.ENGINE_NAME),
+				engine(AiScoringEngine.ENGINE_NAME));
+
+		assertThatIllegalStateException()
+				.isThrownBy(service::initialize)
+				.withMessageContaining("anomaly.onnx.enabled=true");
+	}
+
+	@Test
+	void runningEngineIsAcceptedAsShadow() {
+		ShadowScoringService service = service("onnx", engine(StatisticalScoringEngine.ENGINE_NAME),
+				engine(OnnxScoringEngine.ENGINE_NAME));
+
+		assertThatNoException().isThrownBy(service::initialize);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ShadowScoringService service(String shadowEngine, ScoringEngine... engines) {
+		ShadowScoringService service = new ShadowScoringService(List.of(engines), mock(KafkaTemplate.class),
+				new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(service, "enabled", true);
+		ReflectionTestUtils.setField(service, "shadowEngineName", shadowEngine);
+		ReflectionTestUtils.setField(service, "maxInFlight", 4);
+		return service;
+	}
+
+	private static ScoringEngine engine(String name) {
+		ScoringEngine engine = mock(ScoringEngine.class);
+		when(engine.getEngineName()).thenReturn(name);
+		return engine;
+	}
+}
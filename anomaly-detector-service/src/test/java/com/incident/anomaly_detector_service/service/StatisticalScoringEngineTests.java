@@ -0,0 +1,60 @@
+package com.incident.anomaly_detector_service.service;
+
+import com.incident.anomaly_detector_service.model.LogEvent;
+import com.incident.anomaly_detector_service.model.ScoredLogEvent;
+import com.incident.anomaly_detector_service.model.ScoringBaseline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatisticalScoringEngineTests {
+
+	private final StatisticalScoringEngine engine = new StatisticalScoringEngine();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(engine, "anomalyThreshold", 0.7);
+		ReflectionTestUtils.setField(engine, "fastAlpha", 0.1);
+		ReflectionTestUtils.setField(engine, "slowAlpha", 0.01);
+		ReflectionTestUtils.setField(engine, "minSamples", 5L);
+		ReflectionTestUtils.setField(engine, "maxKeys", 100);
+	}
+
+	@Test
+	void missingLevelIsScoredAsInfoDuringWarmUp() {
+		ScoringBaseline baseline = new ScoringBaseline();
+
+		ScoredLogEvent scored = engine.evaluate(event(null), baseline);
+
+		assertThat(scored.getAnomalyType()).isEqualTo("statistical_warmup");
+		assertThat(scored.getAnomalyScore()).isEqualTo(0.05);
+		assertThat(baseline.getLevelMix()[LogEvent.LogLevel.INFO.ordinal()]).isEqualTo(1.0);
+	}
+
+	@Test
+	void missingLevelIsScoredAsInfoAgainstAWarmBaseline() {
+		ScoringBaseline withNulls = new ScoringBaseline();
+		ScoringBaseline withInfo = new ScoringBaseline();
+		for (int i = 0; i < 10; i++) {
+			engine.evaluate(event(LogEvent.LogLevel.INFO), withNulls);
+			engine.evaluate(event(LogEvent.LogLevel.INFO), withInfo);
+		}
+
+		ScoredLogEvent missing = engine.evaluate(event(null), withNulls);
+		ScoredLogEvent info = engine.evaluate(event(LogEvent.LogLevel.INFO), withInfo);
+
+		assertThat(missing.getAnomalyScore()).isEqualTo(info.getAnomalyScore());
+		assertThat(missing.getFeatureScores()).isEqualTo(info.getFeatureScores());
+	}
+
+	private static LogEvent event(LogEvent.LogLevel level) {
+		return LogEvent.builder()
+				.serviceName("checkout-service")
+				.hostname("checkout-0")
+				.level(level)
+				.message("Order placed")
+				.build();
+	}
+}
@@ -0,0 +1,35 @@
+package com.incident.anomaly_detector_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.mockito.Mockito.mock;
+
+class TraceAggregatorTests {
+
+	@Test
+	void replacingLineEventsRequiresASingleInstance() {
+		assertThatIllegalStateException()
+				.isThrownBy(() -> aggregator(true, false).initialize())
+				.withMessageContaining("anomaly.trace.single-instance");
+	}
+
+	@Test
+	void lineEventsCanBeReplacedOnASingleInstance() {
+		assertThatNoException().isThrownBy(() -> aggregator(true, true).initialize());
+		assertThatNoException().isThrownBy(() -> aggregator(false, false).initialize());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static TraceAggregator aggregator(boolean replaceLineEvents, boolean singleInstance) {
+		TraceAggregator aggregator = new TraceAggregator(mock(KafkaTemplate.class), new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(aggregator, "enabled", true);
+		ReflectionTestUtils.setField(aggregator, "replaceLineEvents", replaceLineEvents);
+		ReflectionTestUtils.setField(aggregator, "singleInstance", singleInstance);
+		return aggregator;
+	}
+}
@@ -0,0 +1,97 @@
+package com.incident.anomaly_detector_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTests {
+
+	@Test
+	void everyInsertedValueIsFound() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("template-" + i);
+		}
+
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(filter.mightContain("template-" + i)).as("template-%d", i).isTrue();
+		}
+	}
+
+	@Test
+	void putReportsWhetherTheValueWasNew() {
+		BloomFilter filter = new BloomFilter(1_000, 0.01);
+
+		assertThat(filter.put("Connection to <*> timed out")).isTrue();
+		assertThat(filter.put("Connection to <*> timed out")).isFalse();
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTheTarget() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("template-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("other-" + i)) {
+				falsePositives++;
+			}
+		}
+		// Twice the configured 1% leaves room for hashing variance without hiding a broken probe sequence
+		assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+	}
+
+	@Test
+	void concurrentPutsKeepEveryValue() throws Exception {
+		BloomFilter filter = new BloomFilter(40_000, 0.01);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int thread = t;
+				writers.add(executor.submit(() -> {
+					for (int i = 0; i < 10_000; i++) {
+						filter.put(thread + "-" + i);
+					}
+				}));
+			}
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int t = 0; t < 4; t++) {
+			for (int i = 0; i < 10_000; i++) {
+				assertThat(filter.mightContain(t + "-" + i)).isTrue();
+			}
+		}
+	}
+
+	@Test
+	void filterSurvivesWriteAndRead() throws Exception {
+		BloomFilter filter = new BloomFilter(1_000, 0.01);
+		filter.put("User <*> logged in");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		filter.writeTo(new DataOutputStream(bytes));
+
+		BloomFilter restored = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertThat(restored.mightContain("User <*> logged in")).isTrue();
+		assertThat(restored.sizeInBytes()).isEqualTo(filter.sizeInBytes());
+		assertThat(restored.put("User <*> logged in")).isFalse();
+	}
+}
@@ -0,0 +1,59 @@
+package com.incident.anomaly_detector_service.util;
+
+import com.incident.anomaly_detector_service.model.LogEnvelope;
+import com.incident.anomaly_detector_service.model.LogEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogEnvelopeInterceptorTests {
+
+	private static final TopicPartition PARTITION = new TopicPartition("logs.raw", 0);
+
+	private final LogEnvelopeInterceptor interceptor = new LogEnvelopeInterceptor();
+
+	@Test
+	void pollWithoutEnvelopesIsPassedThrough() {
+		ConsumerRecords<String, LogEvent> records = new ConsumerRecords<>(Map.of(PARTITION, List.of(
+				record(4, event("log-4")),
+				record(5, event("log-5")))));
+
+		assertThat(interceptor.onConsume(records)).isSameAs(records);
+	}
+
+	@Test
+	void envelopeIsExpandedInPlaceAtItsOffset() {
+		ConsumerRecords<String, LogEvent> records = new ConsumerRecords<>(Map.of(PARTITION, List.of(
+				record(4, event("log-4")),
+				record(5, new LogEnvelope(List.of(event("log-5a"), event("log-5b"), event("log-5c")))),
+				record(6, event("log-6")))));
+
+		List<ConsumerRecord<String, LogEvent>> expanded = interceptor.onConsume(records).records(PARTITION);
+
+		assertThat(expanded.stream().map(record -> record.value().getId()).toList())
+				.containsExactly("log-4", "log-5a", "log-5b", "log-5c", "log-6");
+		// Every packed event shares the envelope's offset, so the commit after the poll covers all of them
+		assertThat(expanded.stream().map(ConsumerRecord::offset).toList())
+				.containsExactly(4L, 5L, 5L, 5L, 6L);
+		assertThat(expanded).allMatch(record -> "checkout-service".equals(record.key()));
+	}
+
+	private static ConsumerRecord<String, LogEvent> record(long offset, LogEvent value) {
+		return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "checkout-service", value);
+	}
+
+	private static LogEvent event(String id) {
+		return LogEvent.builder()
+				.id(id)
+				.serviceName("checkout-service")
+				.level(LogEvent.LogLevel.INFO)
+				.message("Order placed")
+				.build();
+	}
+}
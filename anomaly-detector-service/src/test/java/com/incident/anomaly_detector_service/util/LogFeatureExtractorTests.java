@@ -0,0 +1,63 @@
+package com.incident.anomaly_detector_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LogFeatureExtractorTests {
+
+	// Same message and values as JAVA_BATCH_REQUEST in ai-service/tests/test_contract.py, which checks them
+	// against the pandas computation; together the two tests pin both sides to the same numbers
+	private static final String MESSAGE = "Payment failed for 10.0.0.1: NullPointerException";
+
+	@Test
+	void fixtureMessageMatchesTheValuesPinnedByTheContractTest() {
+		Map<String, Double> features = LogFeatureExtractor.extract(MESSAGE);
+
+		assertThat(features).containsOnlyKeys(LogFeatureExtractor.FEATURE_NAMES);
+		assertThat(features.get("pattern_ip_address_count")).isEqualTo(1.0);
+		assertThat(features.get("pattern_email_count")).isEqualTo(0.0);
+		assertThat(features.get("pattern_url_count")).isEqualTo(0.0);
+		assertThat(features.get("pattern_uuid_count")).isEqualTo(0.0);
+		assertThat(features.get("pattern_number_count")).isEqualTo(4.0);
+		assertThat(features.get("pattern_stack_trace_count")).isEqualTo(0.0);
+		assertThat(features.get("pattern_exception_count")).isEqualTo(1.0);
+		assertThat(features.get("message_entropy")).isCloseTo(4.404827956051038, within(1e-9));
+	}
+
+	@Test
+	void emptyAndNullMessagesHaveNoFeatures() {
+		double[] features = new double[LogFeatureExtractor.FEATURE_NAMES.size()];
+
+		LogFeatureExtractor.extract("", features);
+		assertThat(features).containsOnly(0.0);
+
+		LogFeatureExtractor.extract(null, features);
+		assertThat(features).containsOnly(0.0);
+	}
+
+	@Test
+	void reusedScratchDoesNotCarryCountsBetweenCalls() {
+		double[] first = new double[LogFeatureExtractor.FEATURE_NAMES.size()];
+		double[] second = new double[LogFeatureExtractor.FEATURE_NAMES.size()];
+
+		LogFeatureExtractor.extract(MESSAGE, first);
+		LogFeatureExtractor.extract("Zahlung für Käufer ölig abgelehnt", second);
+		LogFeatureExtractor.extract(MESSAGE, second);
+
+		assertThat(second).containsExactly(first);
+	}
+
+	@Test
+	void nonAsciiCharactersCountTowardsEntropy() {
+		double[] features = new double[LogFeatureExtractor.FEATURE_NAMES.size()];
+
+		// Four distinct characters, each once: two bits per character
+		LogFeatureExtractor.extract("äöüß", features);
+
+		assertThat(features[LogFeatureExtractor.MESSAGE_ENTROPY]).isCloseTo(2.0, within(1e-12));
+	}
+}
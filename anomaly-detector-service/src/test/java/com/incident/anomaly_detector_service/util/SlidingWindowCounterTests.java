@@ -0,0 +1,106 @@
+package com.incident.anomaly_detector_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class SlidingWindowCounterTests {
+
+	@Test
+	void countsPerBucket() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(4, 100);
+
+		assertThat(counter.increment(100)).isEqualTo(1);
+		assertThat(counter.increment(100)).isEqualTo(2);
+		assertThat(counter.increment(101)).isEqualTo(1);
+	}
+
+	@Test
+	void trailingMeanCoversTheCompletedBuckets() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(4, 100);
+		increment(counter, 100, 3);
+		increment(counter, 101, 6);
+		increment(counter, 102, 9);
+
+		// Opening bucket 103 averages 100..102
+		counter.increment(103);
+
+		assertThat(counter.trailingMean()).isCloseTo(6.0, within(1e-9));
+	}
+
+	@Test
+	void reusedSlotStartsFromZero() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(2, 100);
+		increment(counter, 100, 5);
+
+		// Bucket 102 lands in the slot bucket 100 used
+		assertThat(counter.increment(102)).isEqualTo(1);
+	}
+
+	@Test
+	void skippedBucketsCountAsEmpty() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(4, 100);
+		increment(counter, 100, 9);
+
+		// Buckets 101..103 saw nothing, so bucket 100's events have left the window once 104 opens
+		counter.increment(104);
+
+		assertThat(counter.trailingMean()).isEqualTo(0.0);
+	}
+
+	@Test
+	void warmOnceAWholeWindowHasPassed() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(4, 100);
+
+		assertThat(counter.isWarm(102)).isFalse();
+		assertThat(counter.isWarm(103)).isTrue();
+	}
+
+	@Test
+	void onlyOneAlertPerBucket() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(4, 100);
+
+		assertThat(counter.markAlerted(100)).isTrue();
+		assertThat(counter.markAlerted(100)).isFalse();
+		assertThat(counter.markAlerted(99)).isFalse();
+		assertThat(counter.markAlerted(101)).isTrue();
+	}
+
+	@Test
+	void concurrentIncrementsAreNotLost() throws Exception {
+		SlidingWindowCounter counter = new SlidingWindowCounter(4, 100);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				writers.add(executor.submit(() -> increment(counter, 100, 10_000)));
+			}
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(counter.increment(100)).isEqualTo(40_001);
+	}
+
+	@Test
+	void needsAtLeastTwoBuckets() {
+		assertThatThrownBy(() -> new SlidingWindowCounter(1, 100)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static void increment(SlidingWindowCounter counter, long bucket, int times) {
+		for (int i = 0; i < times; i++) {
+			counter.increment(bucket);
+		}
+	}
+}
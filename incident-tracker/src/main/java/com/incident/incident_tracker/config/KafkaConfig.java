@@ -26,6 +26,9 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${kafka.listener.concurrency}")
+    private int concurrency;
+
     @Bean
     public ConsumerFactory<String, Alert> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -46,7 +49,8 @@ public class KafkaConfig {
         ConcurrentKafkaListenerContainerFactory<String, Alert> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
-        factory.setConcurrency(2);
+        // Starting concurrency; ConsumerLagMonitor grows it up to the partition count under lag
+        factory.setConcurrency(concurrency);
         return factory;
     }
 } 
\ No newline at end of file
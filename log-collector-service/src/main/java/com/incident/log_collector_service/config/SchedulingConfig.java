@@ -0,0 +1,20 @@
+package com.incident.log_collector_service.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SchedulingConfig {
+
+    // Spring's default scheduler has a single thread. A producer profile switch (flush and close) or an envelope
+    // send blocked on a full buffer would then hold up admission sampling exactly when shedding matters, so each
+    // @Scheduled task (admission sampling, envelope linger, profile tuning) gets a thread of its own
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(3);
+        scheduler.setThreadNamePrefix("log-collector-scheduling-");
+        return scheduler;
+    }
+}
@@ -1,14 +1,21 @@
 package com.incident.log_collector_service.controller;
 
 import com.incident.log_collector_service.model.LogEvent;
+import com.incident.log_collector_service.service.AdmissionController;
 import com.incident.log_collector_service.service.LogProducer;
+import com.incident.log_collector_service.service.LogStreamIngester;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -18,7 +25,12 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class LogController {
 
+    private static final String SHED_MESSAGE =
+            "Log collector is overloaded: only ERROR and FATAL events were queued, resend all other events";
+
     private final LogProducer logProducer;
+    private final LogStreamIngester logStreamIngester;
+    private final AdmissionController admissionController;
 
     @PostMapping
     public ResponseEntity<Map<String, String>> collectLog(@Valid @RequestBody LogEvent logEvent) {
@@ -27,6 +39,14 @@ public class LogController {
             logEvent.setTimestamp(LocalDateTime.now());
         }
 
+        if (!admissionController.admit(logEvent)) {
+            return tooManyRequests()
+                    .body(Map.of(
+                            "status", "shed",
+                            "message", "Log collector is overloaded, retry later"
+                    ));
+        }
+
         // Send to Kafka
         logProducer.sendLog(logEvent);
 
@@ -40,8 +60,15 @@ public class LogController {
 
     @PostMapping("/batch")
     public ResponseEntity<Map<String, Object>> collectLogs(@Valid @RequestBody List<LogEvent> logEvents) {
-        // Process each log event
-        logEvents.forEach(logEvent -> {
+        // Admission is decided once for the whole batch, so either every event is queued or exactly the
+        // non-error ones are shed
+        boolean shedding = admissionController.isShedding();
+        int shed = 0;
+        for (LogEvent logEvent : logEvents) {
+            if (!admissionController.admit(logEvent, shedding)) {
+                shed++;
+                continue;
+            }
             if (logEvent.getId() == null) {
                 logEvent.setId(UUID.randomUUID().toString());
             }
@@ -49,7 +76,18 @@ public class LogController {
                 logEvent.setTimestamp(LocalDateTime.now());
             }
             logProducer.sendLog(logEvent);
-        });
+        }
+
+        if (shed > 0) {
+            // ERROR/FATAL events in the batch were still queued; every other event needs resending
+            return tooManyRequests()
+                    .body(Map.of(
+                            "status", "partial",
+                            "count", logEvents.size() - shed,
+                            "shed", shed,
+                            "message", SHED_MESSAGE
+                    ));
+        }
 
         return ResponseEntity.status(HttpStatus.ACCEPTED)
                 .body(Map.of(
@@ -59,6 +97,44 @@ public class LogController {
                 ));
     }
 
+    // One JSON log event per line, optionally gzip or zstd encoded; events are sent as they are parsed
+    @PostMapping(value = "/stream", consumes = {"application/x-ndjson", "application/jsonl"})
+    public ResponseEntity<Map<String, Object>> streamLogs(HttpServletRequest request) throws IOException {
+        LogStreamIngester.IngestResult result;
+        try (InputStream body = logStreamIngester.decode(request.getInputStream(),
+                request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            result = logStreamIngester.ingest(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(Map.of("status", "rejected", "message", e.getMessage()));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("accepted", result.accepted());
+        response.put("rejected", result.rejected());
+        response.put("shed", result.shed());
+        response.put("failed", result.failed());
+        if (result.error() != null) {
+            // Events before the malformed line were already queued, so the counts are still reported
+            response.put("status", "partial");
+            response.put("message", result.error());
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (result.shed() > 0) {
+            response.put("status", "partial");
+            response.put("message", SHED_MESSAGE);
+            return tooManyRequests().body(response);
+        }
+        response.put("status", "accepted");
+        response.put("message", "Log events queued for processing");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    private ResponseEntity.BodyBuilder tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionController.getRetryAfterSeconds()));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of(
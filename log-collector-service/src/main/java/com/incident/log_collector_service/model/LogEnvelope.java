@@ -0,0 +1,18 @@
+package com.incident.log_collector_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogEnvelope {
+    private String serviceName;
+    // Each event as WireCodec.encode(LogEvent) wrote it when it joined the envelope
+    private List<byte[]> events;
+}
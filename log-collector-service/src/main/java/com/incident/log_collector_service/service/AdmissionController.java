@@ -0,0 +1,116 @@
+package com.incident.log_collector_service.service;
+
+import com.incident.log_collector_service.model.LogEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Decides whether a log event may be sent. Once the producer buffer is nearly full or too many sends are in flight,
+// a send would block the servlet thread for up to max.block.ms, so lower-level events are shed instead and the
+// caller answers 429 with Retry-After. ERROR and FATAL events are always admitted.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdmissionController {
+
+    private final KafkaTemplate<String, ?> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.admission.enabled}")
+    private boolean enabled;
+
+    @Value("${kafka.admission.min-free-buffer-ratio}")
+    private double minFreeBufferRatio;
+
+    @Value("${kafka.admission.max-in-flight}")
+    private int maxInFlight;
+
+    @Value("${kafka.admission.retry-after-seconds}")
+    private long retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double freeBufferRatio = 1.0;
+    private volatile boolean overloaded;
+
+    @PostConstruct
+    void initialize() {
+        Gauge.builder("logs.admission.in_flight", inFlight, AtomicInteger::get)
+                .description("Log events handed to the producer and not yet acknowledged")
+                .register(meterRegistry);
+        Gauge.builder("logs.admission.free_buffer_ratio", this, controller -> controller.freeBufferRatio)
+                .register(meterRegistry);
+    }
+
+    public boolean admit(LogEvent logEvent) {
+        return admit(logEvent, isShedding());
+    }
+
+    // Multi-event requests take isShedding() once and pass it for every event, so a request is either sent whole
+    // or cut down to exactly its ERROR and FATAL events, and the caller knows which events to resend
+    public boolean admit(LogEvent logEvent, boolean shedding) {
+        if (!shedding || isAlwaysKept(logEvent.getLevel())) {
+            return true;
+        }
+        String service = logEvent.getServiceName() != null ? logEvent.getServiceName() : "unknown";
+        meterRegistry.counter("logs.admission.shed", "service", service).increment();
+        return false;
+    }
+
+    public boolean isShedding() {
+        return enabled && (overloaded || inFlight.get() >= maxInFlight);
+    }
+
+    public void onSendStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void onSendCompleted() {
+        inFlight.decrementAndGet();
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    // Reading producer metrics walks every metric, so it is sampled here rather than on each request
+    @Scheduled(fixedDelayString = "${kafka.admission.sample-interval-ms}")
+    void sampleProducerBuffer() {
+        double available = -1;
+        double total = -1;
+        for (Map.Entry<MetricName, ? extends Metric> entry : kafkaTemplate.metrics().entrySet()) {
+            MetricName name = entry.getKey();
+            if (!"producer-metrics".equals(name.group())) {
+                continue;
+            }
+            if ("buffer-available-bytes".equals(name.name())) {
+                available = ((Number) entry.getValue().metricValue()).doubleValue();
+            } else if ("buffer-total-bytes".equals(name.name())) {
+                total = ((Number) entry.getValue().metricValue()).doubleValue();
+            }
+        }
+        freeBufferRatio = available >= 0 && total > 0 ? available / total : 1.0;
+
+        boolean nowOverloaded = freeBufferRatio < minFreeBufferRatio;
+        if (nowOverloaded != overloaded) {
+            log.warn("Producer buffer {}: {}% free, {} sends in flight",
+                    nowOverloaded ? "nearly full, shedding non-error events" : "recovered",
+                    Math.round(freeBufferRatio * 100), inFlight.get());
+        }
+        overloaded = nowOverloaded;
+    }
+
+    private static boolean isAlwaysKept(LogEvent.LogLevel level) {
+        return level == LogEvent.LogLevel.ERROR || level == LogEvent.LogLevel.FATAL;
+    }
+}
@@ -0,0 +1,184 @@
+package com.incident.log_collector_service.service;
+
+import com.incident.log_collector_service.model.LogEnvelope;
+import com.incident.log_collector_service.model.LogEvent;
+import com.incident.log_collector_service.util.WireCodec;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Envelope mode: packs log events of the same service into one logs.raw record, sent once it holds max-events
+// events or max-bytes of encoded payload, or once it is linger-ms old. Each event's future completes with its envelope.
+// Events are encoded as they join, so an envelope never grows past max-bytes unless a single event is that large.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LogEnvelopeBatcher {
+
+    // Room in max.request.size for the batch and record headers, the key and the content-type header
+    private static final int RECORD_OVERHEAD_BYTES = 1024;
+
+    private final KafkaTemplate<String, LogEnvelope> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.topics.logs-raw}")
+    private String logsRawTopic;
+
+    @Value("${kafka.envelope.max-events}")
+    private int maxEvents;
+
+    @Value("${kafka.envelope.max-bytes}")
+    private int maxBytes;
+
+    @Value("${kafka.envelope.linger-ms}")
+    private long lingerMs;
+
+    // The producer checks every record against it before compression
+    @Value("${spring.kafka.producer.properties.max.request.size:1048576}")
+    private int maxRequestSize;
+
+    private final Map<String, PendingEnvelope> pending = new ConcurrentHashMap<>();
+
+    private DistributionSummary envelopeEvents;
+    private DistributionSummary envelopeBytes;
+
+    @PostConstruct
+    void initialize() {
+        if (maxBytes + RECORD_OVERHEAD_BYTES > maxRequestSize) {
+            throw new IllegalStateException("kafka.envelope.max-bytes (" + maxBytes + ") leaves no room for record "
+                    + "overhead within max.request.size (" + maxRequestSize + ")");
+        }
+        envelopeEvents = DistributionSummary.builder("logs.envelope.events")
+                .description("Log events per envelope record")
+                .register(meterRegistry);
+        envelopeBytes = DistributionSummary.builder("logs.envelope.bytes")
+                .description("Encoded payload bytes per envelope before compression")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> add(LogEvent logEvent) {
+        String key = logEvent.getServiceName() != null ? logEvent.getServiceName() : "";
+        // Encoded outside the lock; the serializer only concatenates these bytes
+        byte[] encoded = WireCodec.encode(logEvent);
+        while (true) {
+            PendingEnvelope envelope = pending.computeIfAbsent(key, k -> new PendingEnvelope(logEvent.getServiceName()));
+            boolean overflow;
+            boolean full = false;
+            synchronized (envelope) {
+                if (envelope.closed) {
+                    // Sealed by another thread or the linger sweep after the lookup; start a new one
+                    continue;
+                }
+                overflow = !envelope.events.isEmpty() && envelope.sizeWith(encoded) > maxBytes;
+                if (!overflow) {
+                    envelope.add(encoded);
+                    full = envelope.events.size() >= maxEvents || envelope.size() >= maxBytes;
+                }
+                if (overflow || full) {
+                    envelope.closed = true;
+                    pending.remove(key, envelope);
+                }
+            }
+            if (overflow) {
+                // The event would take the envelope past max-bytes, so it goes into the next one
+                send(envelope);
+                continue;
+            }
+            if (full) {
+                send(envelope);
+            }
+            return envelope.completion;
+        }
+    }
+
+    // Sends every pending envelope regardless of age
+    public void flush() {
+        sealAndSend(Long.MAX_VALUE);
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.envelope.linger-ms}")
+    void sendLingering() {
+        sealAndSend(lingerMs);
+    }
+
+    private void sealAndSend(long minAgeMs) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, PendingEnvelope> entry : pending.entrySet()) {
+            PendingEnvelope envelope = entry.getValue();
+            synchronized (envelope) {
+                if (envelope.closed || (minAgeMs != Long.MAX_VALUE && now - envelope.createdAt < minAgeMs)) {
+                    continue;
+                }
+                envelope.closed = true;
+                pending.remove(entry.getKey(), envelope);
+            }
+            send(envelope);
+        }
+    }
+
+    private void send(PendingEnvelope envelope) {
+        List<byte[]> events = envelope.events;
+        String serviceName = envelope.serviceName;
+        envelopeEvents.record(events.size());
+        envelopeBytes.record(envelope.size());
+        try {
+            // Blocks while the producer buffer is full, like any other send
+            kafkaTemplate.send(logsRawTopic, serviceName, LogEnvelope.builder()
+                            .serviceName(serviceName)
+                            .events(events)
+                            .build())
+                    .whenComplete((result, ex) -> {
+                        if (ex == null) {
+                            log.debug("Sent envelope of {} log events for {}", events.size(), serviceName);
+                            envelope.completion.complete(null);
+                        } else {
+                            log.error("Failed to send envelope of {} log events for {}", events.size(), serviceName, ex);
+                            envelope.completion.completeExceptionally(ex);
+                        }
+                    });
+        } catch (Exception e) {
+            log.error("Failed to queue envelope of {} log events for {}", events.size(), serviceName, e);
+            envelope.completion.completeExceptionally(e);
+        }
+    }
+
+    private static final class PendingEnvelope {
+        private final String serviceName;
+        private final List<byte[]> events = new ArrayList<>();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final long createdAt = System.currentTimeMillis();
+        private long eventBytes;
+        private boolean closed;
+
+        private PendingEnvelope(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        private void add(byte[] encoded) {
+            events.add(encoded);
+            eventBytes += encoded.length;
+        }
+
+        // Exactly what WireCodec.encodeEnvelope will write
+        private long size() {
+            return WireCodec.envelopeSize(events.size(), eventBytes);
+        }
+
+        private long sizeWith(byte[] encoded) {
+            return WireCodec.envelopeSize(events.size() + 1, eventBytes + encoded.length);
+        }
+    }
+}
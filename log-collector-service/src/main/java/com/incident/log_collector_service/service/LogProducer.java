@@ -13,6 +13,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @RequiredArgsConstructor
@@ -20,16 +21,39 @@ import java.util.concurrent.CompletableFuture;
 public class LogProducer {
 
     private final KafkaTemplate<String, LogEvent> kafkaTemplate;
+    private final LogEnvelopeBatcher logEnvelopeBatcher;
+    private final AdmissionController admissionController;
 
     @Value("${kafka.topics.logs-raw}")
     private String logsRawTopic;
 
-    public CompletableFuture<SendResult<String, LogEvent>> sendLog(LogEvent logEvent) {
+    @Value("${kafka.envelope.enabled}")
+    private boolean envelopeEnabled;
+
+    // Log events, not Kafka records: in envelope mode one record carries many events
+    private final LongAdder sentEvents = new LongAdder();
+
+    public CompletableFuture<Void> sendLog(LogEvent logEvent) {
         // Generate ID if not present
         if (logEvent.getId() == null) {
             logEvent.setId(UUID.randomUUID().toString());
         }
 
+        // In-flight sends are what AdmissionController weighs against max-in-flight
+        admissionController.onSendStarted();
+        sentEvents.increment();
+        try {
+            // Envelope mode: the event shares a record (and its key and headers) with others from the same service
+            CompletableFuture<Void> sent = envelopeEnabled ? logEnvelopeBatcher.add(logEvent) : send(logEvent);
+            sent.whenComplete((result, ex) -> admissionController.onSendCompleted());
+            return sent;
+        } catch (RuntimeException e) {
+            admissionController.onSendCompleted();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Void> send(LogEvent logEvent) {
         // Create message with headers
         Message<LogEvent> message = MessageBuilder
                 .withPayload(logEvent)
@@ -54,7 +78,20 @@ public class LogProducer {
             }
         });
 
-        return future;
+        return future.thenApply(result -> null);
+    }
+
+    // Total log events handed to sendLog since startup
+    public long getSentEvents() {
+        return sentEvents.sum();
+    }
+
+    // Blocks until every send handed to the producer so far has completed
+    public void flush() {
+        if (envelopeEnabled) {
+            logEnvelopeBatcher.flush();
+        }
+        kafkaTemplate.flush();
     }
 
     public void sendLogSync(LogEvent logEvent) {
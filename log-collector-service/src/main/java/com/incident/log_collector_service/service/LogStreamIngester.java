@@ -0,0 +1,116 @@
+package com.incident.log_collector_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.luben.zstd.ZstdInputStream;
+import com.incident.log_collector_service.model.LogEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+// Parses a newline-delimited JSON body one event at a time and hands each to LogProducer as soon as it is read,
+// so memory use depends on the producer buffer rather than the size of the request
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LogStreamIngester {
+
+    private static final int DECOMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+    private final LogProducer logProducer;
+    private final AdmissionController admissionController;
+    private final ObjectMapper objectMapper;
+
+    public record IngestResult(long accepted, long rejected, long shed, long failed, String error) {
+    }
+
+    // Wraps the body for its Content-Encoding; throws IllegalArgumentException for encodings that are not supported
+    public InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        if (contentEncoding == null || contentEncoding.isBlank() || contentEncoding.equalsIgnoreCase("identity")) {
+            return body;
+        }
+        return switch (contentEncoding.trim().toLowerCase()) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(body, DECOMPRESSION_BUFFER_SIZE);
+            case "zstd" -> new ZstdInputStream(body);
+            default -> throw new IllegalArgumentException("Unsupported Content-Encoding: " + contentEncoding);
+        };
+    }
+
+    public IngestResult ingest(InputStream body) {
+        ObjectReader reader = objectMapper.readerFor(LogEvent.class);
+        AtomicLong failed = new AtomicLong();
+        // Decided once for the whole body, so either every event is sent or exactly the non-error ones are shed
+        boolean shedding = admissionController.isShedding();
+        long accepted = 0;
+        long rejected = 0;
+        long shed = 0;
+        String error = null;
+
+        try (MappingIterator<LogEvent> events = reader.readValues(body)) {
+            while (events.hasNextValue()) {
+                LogEvent logEvent;
+                try {
+                    logEvent = events.nextValue();
+                } catch (JsonMappingException e) {
+                    // A well-formed line that does not map to a LogEvent; the iterator skips to the next one
+                    rejected++;
+                    continue;
+                }
+                if (logEvent == null || logEvent.getServiceName() == null || logEvent.getLevel() == null) {
+                    rejected++;
+                    continue;
+                }
+                if (!admissionController.admit(logEvent, shedding)) {
+                    // The rest of the body is still read so ERROR/FATAL events further on get through
+                    shed++;
+                    continue;
+                }
+                send(logEvent, failed);
+                accepted++;
+            }
+        } catch (JsonProcessingException e) {
+            // Malformed JSON cannot be resynchronised, so the rest of the body is dropped
+            error = "Malformed NDJSON after " + (accepted + rejected + shed) + " events: " + e.getOriginalMessage();
+            log.warn("Stopped NDJSON ingest: {}", error);
+        } catch (IOException e) {
+            // Truncated or corrupt compressed bodies surface here
+            error = "Could not read request body after " + (accepted + rejected + shed) + " events: " + e.getMessage();
+            log.warn("Stopped NDJSON ingest: {}", error);
+        } finally {
+            // Everything handed to the producer is either on the broker or counted as failed before responding
+            logProducer.flush();
+        }
+
+        return new IngestResult(accepted, rejected, shed, failed.get(), error);
+    }
+
+    private void send(LogEvent logEvent, AtomicLong failed) {
+        if (logEvent.getId() == null) {
+            logEvent.setId(UUID.randomUUID().toString());
+        }
+        if (logEvent.getTimestamp() == null) {
+            logEvent.setTimestamp(LocalDateTime.now());
+        }
+        try {
+            logProducer.sendLog(logEvent).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    failed.incrementAndGet();
+                }
+            });
+        } catch (Exception e) {
+            // send blocks while the producer buffer is full and throws once max.block.ms runs out
+            failed.incrementAndGet();
+            log.error("Failed to queue log event: {}", logEvent.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.incident.log_collector_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Samples the rate of log events handed to LogProducer and switches between a latency profile (light compression,
+// short linger) and a throughput profile (zstd, longer linger, bigger batches) with hysteresis between low-rate and
+// high-rate. The event rate rather than Kafka's record-send-rate decides, as envelopes pack many events per record.
+// Producer settings only apply to new producers, so a switch resets the factory: the current producer is flushed
+// and closed, and the next send creates one with the new profile.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProducerProfileTuner {
+
+    public enum Profile {
+        LATENCY, THROUGHPUT
+    }
+
+    private final ProducerFactory<?, ?> producerFactory;
+    private final KafkaTemplate<String, ?> kafkaTemplate;
+    private final LogProducer logProducer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.producer-profile.adaptive}")
+    private boolean adaptive;
+
+    @Value("${kafka.producer-profile.high-rate}")
+    private double highRate;
+
+    @Value("${kafka.producer-profile.low-rate}")
+    private double lowRate;
+
+    @Value("${kafka.producer-profile.cooldown-ms}")
+    private long cooldownMs;
+
+    @Value("${kafka.producer-profile.latency.compression-type}")
+    private String latencyCompression;
+
+    @Value("${kafka.producer-profile.latency.linger-ms}")
+    private int latencyLingerMs;
+
+    @Value("${kafka.producer-profile.latency.batch-size}")
+    private int latencyBatchSize;
+
+    @Value("${kafka.producer-profile.throughput.compression-type}")
+    private String throughputCompression;
+
+    @Value("${kafka.producer-profile.throughput.linger-ms}")
+    private int throughputLingerMs;
+
+    @Value("${kafka.producer-profile.throughput.batch-size}")
+    private int throughputBatchSize;
+
+    private final AtomicReference<ProducerSample> lastSample = new AtomicReference<>(ProducerSample.EMPTY);
+    private volatile Profile profile = Profile.LATENCY;
+    // Counts startup as a change so the first switch waits one cooldown
+    private long lastChangeNanos = System.nanoTime();
+    private long lastSentEvents;
+    private long lastSampleNanos = System.nanoTime();
+
+    @PostConstruct
+    void initialize() {
+        // Kept on the tuner's own samples, so the series survive the producer being replaced by a switch
+        Gauge.builder("logs.producer.batch.size", lastSample, sample -> sample.get().batchSizeAvg())
+                .description("Average record batch size in bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("logs.producer.compression.ratio", lastSample, sample -> sample.get().compressionRateAvg())
+                .description("Average compressed/uncompressed size of record batches")
+                .register(meterRegistry);
+        Gauge.builder("logs.producer.request.latency", lastSample, sample -> sample.get().requestLatencyAvgMs())
+                .description("Average produce request latency")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("logs.producer.send.rate", lastSample, sample -> sample.get().recordSendRate())
+                .baseUnit("records/s")
+                .register(meterRegistry);
+        Gauge.builder("logs.producer.event.rate", lastSample, sample -> sample.get().eventRate())
+                .description("Log events handed to the producer per second, whether or not they share a record")
+                .baseUnit("events/s")
+                .register(meterRegistry);
+        Gauge.builder("logs.producer.profile", this, tuner -> tuner.profile.ordinal())
+                .description("0 = latency profile, 1 = throughput profile")
+                .register(meterRegistry);
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.producer-profile.interval-ms}")
+    void tune() {
+        ProducerSample sample = sample(kafkaTemplate.metrics(), eventRate());
+        lastSample.set(sample);
+        if (!adaptive || System.nanoTime() - lastChangeNanos < TimeUnit.MILLISECONDS.toNanos(cooldownMs)) {
+            return;
+        }
+
+        Profile target = profile;
+        if (profile == Profile.LATENCY && sample.eventRate() >= highRate) {
+            target = Profile.THROUGHPUT;
+        } else if (profile == Profile.THROUGHPUT && sample.eventRate() <= lowRate) {
+            target = Profile.LATENCY;
+        }
+        if (target != profile) {
+            apply(target, sample);
+        }
+    }
+
+    private void apply(Profile target, ProducerSample sample) {
+        boolean throughput = target == Profile.THROUGHPUT;
+        log.info("Switching producer to the {} profile at {} events/s in {} records/s (batch {} bytes, compression {}, "
+                        + "latency {} ms)", target, Math.round(sample.eventRate()), Math.round(sample.recordSendRate()),
+                Math.round(sample.batchSizeAvg()),
+                String.format("%.2f", sample.compressionRateAvg()), Math.round(sample.requestLatencyAvgMs()));
+
+        producerFactory.updateConfigs(Map.of(
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, throughput ? throughputCompression : latencyCompression,
+                ProducerConfig.LINGER_MS_CONFIG, throughput ? throughputLingerMs : latencyLingerMs,
+                ProducerConfig.BATCH_SIZE_CONFIG, throughput ? throughputBatchSize : latencyBatchSize));
+        // A send racing the reset can fail on the closing producer; it surfaces like any other failed send
+        producerFactory.reset();
+        profile = target;
+        lastChangeNanos = System.nanoTime();
+    }
+
+    // Events per second since the previous tick; tune() is the only caller, so the bookkeeping needs no locking
+    private double eventRate() {
+        long sentEvents = logProducer.getSentEvents();
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleNanos) / 1e9;
+        double rate = seconds > 0 ? (sentEvents - lastSentEvents) / seconds : 0.0;
+        lastSentEvents = sentEvents;
+        lastSampleNanos = now;
+        return rate;
+    }
+
+    private static ProducerSample sample(Map<MetricName, ? extends Metric> metrics, double eventRate) {
+        double sendRate = 0;
+        double batchSize = 0;
+        double compressionRate = 0;
+        double requestLatency = 0;
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+            MetricName name = entry.getKey();
+            if (!"producer-metrics".equals(name.group())) {
+                continue;
+            }
+            switch (name.name()) {
+                case "record-send-rate" -> sendRate = value(entry.getValue());
+                case "batch-size-avg" -> batchSize = value(entry.getValue());
+                case "compression-rate-avg" -> compressionRate = value(entry.getValue());
+                case "request-latency-avg" -> requestLatency = value(entry.getValue());
+                default -> {
+                }
+            }
+        }
+        return new ProducerSample(eventRate, sendRate, batchSize, compressionRate, requestLatency);
+    }
+
+    // Kafka reports NaN for averages with no samples in the window
+    private static double value(Metric metric) {
+        Object value = metric.metricValue();
+        return value instanceof Number number && !Double.isNaN(number.doubleValue()) ? number.doubleValue() : 0.0;
+    }
+
+    private record ProducerSample(double eventRate, double recordSendRate, double batchSizeAvg,
+                                  double compressionRateAvg, double requestLatencyAvgMs) {
+        private static final ProducerSample EMPTY = new ProducerSample(0, 0, 0, 0, 0);
+    }
+}
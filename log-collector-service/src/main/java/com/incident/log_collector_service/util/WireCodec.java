@@ -0,0 +1,214 @@
+package com.incident.log_collector_service.util;
+
+import com.incident.log_collector_service.model.LogEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Compact binary encoding of LogEvent, used on logs.raw when wire.format=binary.
+// Fields are written in declaration order behind a presence bitmask: strings as varint length + UTF-8, the level
+// as its ordinal, timestamps as UTC epoch seconds + nanos, and metadata values with a one-byte type tag.
+// Adding a field means a new VERSION; readers reject versions they do not know. Only the encoder lives here: the
+// decoder, and the codec for ScoredLogEvent, live in anomaly-detector-service; keep the copies in step.
+// WireCodecTests pins the envelope bytes that anomaly-detector-service's WireCodecTests unpacks.
+public final class WireCodec {
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String BINARY_CONTENT_TYPE = "application/x-incident-log-v1";
+    // Many LogEvents of one service in a single record: a count, then each event as encode(LogEvent) writes it
+    public static final String ENVELOPE_CONTENT_TYPE = "application/x-incident-log-envelope-v1";
+
+    private static final byte VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_TRUE = 4;
+    private static final byte TAG_FALSE = 5;
+    private static final byte TAG_MAP = 6;
+    private static final byte TAG_LIST = 7;
+
+    private WireCodec() {
+    }
+
+    public static byte[] encode(LogEvent event) {
+        Writer out = new Writer(256);
+        out.writeByte(VERSION);
+        writeLogFields(out, event.getId(), event.getServiceName(), event.getHostname(), event.getPodName(),
+                event.getLevel(), event.getMessage(), event.getStackTrace(), event.getTimestamp(),
+                event.getMetadata(), event.getTraceId(), event.getSpanId());
+        return out.toByteArray();
+    }
+
+    // Packs events already written by encode(LogEvent), so the batcher knows each event's exact size up front
+    public static byte[] encodeEnvelope(List<byte[]> encodedEvents) {
+        long eventBytes = 0;
+        for (byte[] event : encodedEvents) {
+            eventBytes += event.length;
+        }
+        Writer out = new Writer(Math.toIntExact(envelopeSize(encodedEvents.size(), eventBytes)));
+        out.writeByte(VERSION);
+        out.writeVarInt(encodedEvents.size());
+        encodedEvents.forEach(out::writeBytes);
+        return out.toByteArray();
+    }
+
+    // Size of an envelope of count events whose encode(LogEvent) forms add up to eventBytes
+    public static long envelopeSize(int count, long eventBytes) {
+        return 1 + varIntSize(count) + eventBytes;
+    }
+
+    private static void writeLogFields(Writer out, String id, String serviceName, String hostname, String podName,
+                                       LogEvent.LogLevel level, String message, String stackTrace,
+                                       LocalDateTime timestamp, Map<String, Object> metadata,
+                                       String traceId, String spanId) {
+        int present = bit(id, 0) | bit(serviceName, 1) | bit(hostname, 2) | bit(podName, 3) | bit(level, 4)
+                | bit(message, 5) | bit(stackTrace, 6) | bit(timestamp, 7) | bit(metadata, 8)
+                | bit(traceId, 9) | bit(spanId, 10);
+        out.writeVarInt(present);
+        writeIfPresent(out, id);
+        writeIfPresent(out, serviceName);
+        writeIfPresent(out, hostname);
+        writeIfPresent(out, podName);
+        if (level != null) {
+            out.writeByte((byte) level.ordinal());
+        }
+        writeIfPresent(out, message);
+        writeIfPresent(out, stackTrace);
+        if (timestamp != null) {
+            writeTimestamp(out, timestamp);
+        }
+        if (metadata != null) {
+            writeMap(out, metadata);
+        }
+        writeIfPresent(out, traceId);
+        writeIfPresent(out, spanId);
+    }
+
+    private static void writeIfPresent(Writer out, String value) {
+        if (value != null) {
+            out.writeString(value);
+        }
+    }
+
+    private static void writeTimestamp(Writer out, LocalDateTime timestamp) {
+        out.writeVarLong(zigZag(timestamp.toEpochSecond(ZoneOffset.UTC)));
+        out.writeVarInt(timestamp.getNano());
+    }
+
+    private static void writeMap(Writer out, Map<?, ?> map) {
+        out.writeVarInt(map.size());
+        map.forEach((key, value) -> {
+            out.writeString(String.valueOf(key));
+            writeValue(out, value);
+        });
+    }
+
+    private static void writeValue(Writer out, Object value) {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(bool ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_LONG);
+            out.writeVarLong(zigZag(((Number) value).longValue()));
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(TAG_MAP);
+            writeMap(out, map);
+        } else if (value instanceof Iterable<?> iterable) {
+            List<Object> items = new ArrayList<>();
+            iterable.forEach(items::add);
+            out.writeByte(TAG_LIST);
+            out.writeVarInt(items.size());
+            items.forEach(item -> writeValue(out, item));
+        } else {
+            // Anything else (BigDecimal, dates, ...) travels as its string form, as it would once it is in JSON
+            out.writeByte(TAG_STRING);
+            out.writeString(value.toString());
+        }
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        long rest = value & 0xFFFFFFFFL;
+        while ((rest & ~0x7FL) != 0) {
+            rest >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int bit(Object value, int field) {
+        return value != null ? 1 << field : 0;
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int size;
+
+        private Writer(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        private void writeByte(byte b) {
+            ensureCapacity(1);
+            buffer[size++] = b;
+        }
+
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeDouble(double value) {
+            ensureCapacity(8);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (bits >>> shift);
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        private void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
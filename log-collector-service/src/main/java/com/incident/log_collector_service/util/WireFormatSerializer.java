@@ -0,0 +1,55 @@
+package com.incident.log_collector_service.util;
+
+import com.incident.log_collector_service.model.LogEnvelope;
+import com.incident.log_collector_service.model.LogEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Producer value serializer: LogEvent is written with WireCodec when the producer property
+// wire.format is 'binary', and LogEnvelope always is, tagged with a content-type header; everything else
+// (and 'json') goes through Jackson.
+// Consumers pick the decoder from the header, so both formats can share a topic during a rollout.
+public class WireFormatSerializer implements Serializer<Object> {
+
+    public static final String WIRE_FORMAT_CONFIG = "wire.format";
+
+    private static final byte[] BINARY_CONTENT_TYPE = WireCodec.BINARY_CONTENT_TYPE.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENVELOPE_CONTENT_TYPE = WireCodec.ENVELOPE_CONTENT_TYPE.getBytes(StandardCharsets.UTF_8);
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+    private boolean binary;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        binary = "binary".equalsIgnoreCase(String.valueOf(configs.get(WIRE_FORMAT_CONFIG)));
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data instanceof LogEnvelope envelope) {
+            // Envelopes only exist in binary form, whatever wire.format says for single events
+            headers.add(WireCodec.CONTENT_TYPE_HEADER, ENVELOPE_CONTENT_TYPE);
+            return WireCodec.encodeEnvelope(envelope.getEvents());
+        }
+        if (binary && data instanceof LogEvent logEvent) {
+            headers.add(WireCodec.CONTENT_TYPE_HEADER, BINARY_CONTENT_TYPE);
+            return WireCodec.encode(logEvent);
+        }
+        return json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.incident.log_collector_service.service;
+
+import com.incident.log_collector_service.model.LogEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class AdmissionControllerTests {
+
+	private static final int MAX_IN_FLIGHT = 2;
+
+	private final KafkaTemplate<String, ?> kafkaTemplate = mock(KafkaTemplate.class);
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AdmissionController admissionController = new AdmissionController(kafkaTemplate, meterRegistry);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(admissionController, "enabled", true);
+		ReflectionTestUtils.setField(admissionController, "minFreeBufferRatio", 0.2);
+		ReflectionTestUtils.setField(admissionController, "maxInFlight", MAX_IN_FLIGHT);
+		admissionController.initialize();
+	}
+
+	@Test
+	void everythingIsAdmittedWhileTheBufferHasRoom() {
+		bufferBytes(80, 100);
+
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.INFO))).isTrue();
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.DEBUG))).isTrue();
+	}
+
+	@Test
+	void onlyErrorsAreAdmittedOnceTheBufferIsNearlyFull() {
+		bufferBytes(10, 100);
+
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.INFO))).isFalse();
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.WARN))).isFalse();
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.ERROR))).isTrue();
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.FATAL))).isTrue();
+		assertThat(meterRegistry.counter("logs.admission.shed", "service", "checkout-service").count())
+				.isEqualTo(2.0);
+	}
+
+	@Test
+	void sheddingStopsOnceTheBufferRecovers() {
+		bufferBytes(10, 100);
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.INFO))).isFalse();
+
+		bufferBytes(50, 100);
+
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.INFO))).isTrue();
+	}
+
+	@Test
+	void onlyErrorsAreAdmittedWhileMaxInFlightSendsArePending() {
+		bufferBytes(100, 100);
+		for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+			admissionController.onSendStarted();
+		}
+
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.INFO))).isFalse();
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.ERROR))).isTrue();
+
+		admissionController.onSendCompleted();
+
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.INFO))).isTrue();
+	}
+
+	@Test
+	void aSheddingDecisionHoldsForTheWholeRequest() {
+		bufferBytes(100, 100);
+		for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+			admissionController.onSendStarted();
+		}
+		boolean shedding = admissionController.isShedding();
+
+		admissionController.onSendCompleted();
+
+		assertThat(shedding).isTrue();
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.INFO), shedding)).isFalse();
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.ERROR), shedding)).isTrue();
+		assertThat(admissionController.isShedding()).isFalse();
+	}
+
+	@Test
+	void everythingIsAdmittedWhenDisabled() {
+		ReflectionTestUtils.setField(admissionController, "enabled", false);
+		bufferBytes(0, 100);
+
+		assertThat(admissionController.admit(event(LogEvent.LogLevel.DEBUG))).isTrue();
+		assertThat(admissionController.isShedding()).isFalse();
+	}
+
+	// Stands in for the producer metrics and takes a sample, as the scheduled task would
+	private void bufferBytes(double available, double total) {
+		doReturn(Map.of(
+				metricName("buffer-available-bytes"), metric(available),
+				metricName("buffer-total-bytes"), metric(total)))
+				.when(kafkaTemplate).metrics();
+		admissionController.sampleProducerBuffer();
+	}
+
+	private static MetricName metricName(String name) {
+		return new MetricName(name, "producer-metrics", "", Map.of("client-id", "producer-1"));
+	}
+
+	private static Metric metric(double value) {
+		return new Metric() {
+			@Override
+			public MetricName metricName() {
+				return null;
+			}
+
+			@Override
+			public Object metricValue() {
+				return value;
+			}
+		};
+	}
+
+	private static LogEvent event(LogEvent.LogLevel level) {
+		return LogEvent.builder().serviceName("checkout-service").level(level).message("Order placed").build();
+	}
+}
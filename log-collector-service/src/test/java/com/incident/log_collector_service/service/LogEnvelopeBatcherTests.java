@@ -0,0 +1,107 @@
+package com.incident.log_collector_service.service;
+
+import com.incident.log_collector_service.model.LogEnvelope;
+import com.incident.log_collector_service.model.LogEvent;
+import com.incident.log_collector_service.util.WireCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LogEnvelopeBatcherTests {
+
+	private static final int MAX_BYTES = 16 * 1024;
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, LogEnvelope> kafkaTemplate = mock(KafkaTemplate.class);
+
+	private LogEnvelopeBatcher batcher(int maxEvents, int maxBytes) {
+		when(kafkaTemplate.send(anyString(), any(), any())).thenReturn(new CompletableFuture<>());
+		LogEnvelopeBatcher batcher = new LogEnvelopeBatcher(kafkaTemplate, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(batcher, "logsRawTopic", "logs.raw");
+		ReflectionTestUtils.setField(batcher, "maxEvents", maxEvents);
+		ReflectionTestUtils.setField(batcher, "maxBytes", maxBytes);
+		ReflectionTestUtils.setField(batcher, "lingerMs", 20L);
+		ReflectionTestUtils.setField(batcher, "maxRequestSize", 1024 * 1024);
+		batcher.initialize();
+		return batcher;
+	}
+
+	@Test
+	void envelopesStayWithinMaxBytes() {
+		LogEnvelopeBatcher batcher = batcher(200, MAX_BYTES);
+		// Two UTF-8 bytes per character plus metadata: far more than a character count suggests
+		for (int i = 0; i < 40; i++) {
+			batcher.add(event("checkout-" + i, "ü".repeat(1500)));
+		}
+		batcher.flush();
+
+		List<LogEnvelope> envelopes = sentEnvelopes();
+		assertThat(envelopes.stream().mapToInt(envelope -> envelope.getEvents().size()).sum()).isEqualTo(40);
+		for (LogEnvelope envelope : envelopes) {
+			assertThat(WireCodec.encodeEnvelope(envelope.getEvents()).length).isLessThanOrEqualTo(MAX_BYTES);
+		}
+	}
+
+	@Test
+	void eventLargerThanMaxBytesTravelsAlone() {
+		LogEnvelopeBatcher batcher = batcher(200, MAX_BYTES);
+		batcher.add(event("checkout-0", "small"));
+		batcher.add(event("checkout-1", "x".repeat(MAX_BYTES)));
+		batcher.add(event("checkout-2", "small"));
+		batcher.flush();
+
+		assertThat(sentEnvelopes().stream().map(envelope -> envelope.getEvents().size()).toList())
+				.containsExactly(1, 1, 1);
+	}
+
+	@Test
+	void envelopeIsSentOnceItHoldsMaxEvents() {
+		LogEnvelopeBatcher batcher = batcher(3, MAX_BYTES);
+		for (int i = 0; i < 3; i++) {
+			batcher.add(event("checkout-" + i, "Order placed"));
+		}
+
+		assertThat(sentEnvelopes()).hasSize(1);
+		assertThat(sentEnvelopes().get(0).getEvents()).hasSize(3);
+	}
+
+	@Test
+	void maxBytesMustLeaveRoomWithinMaxRequestSize() {
+		assertThatThrownBy(() -> batcher(200, 1024 * 1024))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("max.request.size");
+	}
+
+	private List<LogEnvelope> sentEnvelopes() {
+		ArgumentCaptor<LogEnvelope> envelopes = ArgumentCaptor.forClass(LogEnvelope.class);
+		verify(kafkaTemplate, atLeastOnce()).send(eq("logs.raw"), eq("checkout-service"), envelopes.capture());
+		return envelopes.getAllValues();
+	}
+
+	private static LogEvent event(String id, String message) {
+		return LogEvent.builder()
+				.id(id)
+				.serviceName("checkout-service")
+				.hostname("checkout-7d9f8")
+				.level(LogEvent.LogLevel.INFO)
+				.message(message)
+				.metadata(Map.of("region", "eu-west-1", "attempt", 1))
+				.build();
+	}
+}
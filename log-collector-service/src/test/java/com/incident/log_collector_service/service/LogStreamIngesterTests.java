@@ -0,0 +1,159 @@
+package com.incident.log_collector_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.incident.log_collector_service.model.LogEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LogStreamIngesterTests {
+
+	private static final String INFO_LINE = "{\"serviceName\":\"checkout-service\",\"level\":\"INFO\",\"message\":\"Order placed\"}\n";
+	private static final String ERROR_LINE = "{\"serviceName\":\"checkout-service\",\"level\":\"ERROR\",\"message\":\"Payment declined\"}\n";
+
+	private final LogProducer logProducer = mock(LogProducer.class);
+	private final AdmissionController admissionController = mock(AdmissionController.class);
+	private final LogStreamIngester ingester =
+			new LogStreamIngester(logProducer, admissionController, new ObjectMapper().findAndRegisterModules());
+
+	@BeforeEach
+	void setUp() {
+		// While shedding only errors get through, as in AdmissionController
+		when(admissionController.admit(any(), anyBoolean())).thenAnswer(invocation -> !invocation.<Boolean>getArgument(1)
+				|| invocation.<LogEvent>getArgument(0).getLevel() == LogEvent.LogLevel.ERROR);
+		when(logProducer.sendLog(any())).thenReturn(CompletableFuture.completedFuture(null));
+	}
+
+	@Test
+	void invalidLinesAreRejectedAndTheRestSent() {
+		String body = INFO_LINE
+				// No level
+				+ "{\"serviceName\":\"checkout-service\",\"message\":\"Order placed\"}\n"
+				// Well-formed JSON that does not map to a LogEvent
+				+ "{\"serviceName\":\"checkout-service\",\"level\":\"LOUD\"}\n"
+				+ "\n"
+				+ ERROR_LINE;
+
+		LogStreamIngester.IngestResult result = ingester.ingest(stream(body.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result).isEqualTo(new LogStreamIngester.IngestResult(2, 2, 0, 0, null));
+		verify(logProducer, times(2)).sendLog(any());
+		verify(logProducer).flush();
+	}
+
+	@Test
+	void malformedJsonStopsTheIngest() {
+		String body = INFO_LINE + "{\"serviceName\": \"checkout-service\", \"level\n" + ERROR_LINE;
+
+		LogStreamIngester.IngestResult result = ingester.ingest(stream(body.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.accepted()).isEqualTo(1);
+		assertThat(result.error()).startsWith("Malformed NDJSON after 1 events");
+		verify(logProducer).flush();
+	}
+
+	@Test
+	void shedEventsDoNotStopLaterErrors() {
+		when(admissionController.isShedding()).thenReturn(true);
+
+		LogStreamIngester.IngestResult result = ingester.ingest(
+				stream((INFO_LINE + INFO_LINE + ERROR_LINE).getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.shed()).isEqualTo(2);
+		assertThat(result.accepted()).isEqualTo(1);
+	}
+
+	@Test
+	void admissionIsDecidedOnceForTheWholeBody() {
+		// Pressure easing halfway through the body must not let some INFO events through and not others
+		when(admissionController.isShedding()).thenReturn(true, false);
+
+		LogStreamIngester.IngestResult result = ingester.ingest(
+				stream((INFO_LINE + ERROR_LINE + INFO_LINE).getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.shed()).isEqualTo(2);
+		assertThat(result.accepted()).isEqualTo(1);
+		verify(admissionController, times(1)).isShedding();
+	}
+
+	@Test
+	void failedSendsAreCounted() {
+		when(logProducer.sendLog(any())).thenReturn(CompletableFuture.failedFuture(new IOException("broker down")));
+
+		LogStreamIngester.IngestResult result = ingester.ingest(stream(INFO_LINE.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.accepted()).isEqualTo(1);
+		assertThat(result.failed()).isEqualTo(1);
+	}
+
+	@Test
+	void gzipBodyIsDecoded() throws Exception {
+		byte[] body = compress(INFO_LINE + ERROR_LINE, GZIPOutputStream::new);
+
+		LogStreamIngester.IngestResult result = ingester.ingest(ingester.decode(stream(body), "gzip"));
+
+		assertThat(result).isEqualTo(new LogStreamIngester.IngestResult(2, 0, 0, 0, null));
+	}
+
+	@Test
+	void zstdBodyIsDecoded() throws Exception {
+		byte[] body = compress(INFO_LINE + ERROR_LINE, ZstdOutputStream::new);
+
+		LogStreamIngester.IngestResult result = ingester.ingest(ingester.decode(stream(body), "zstd"));
+
+		assertThat(result).isEqualTo(new LogStreamIngester.IngestResult(2, 0, 0, 0, null));
+	}
+
+	@Test
+	void truncatedGzipBodyReportsAnError() throws Exception {
+		byte[] body = compress(INFO_LINE.repeat(100), GZIPOutputStream::new);
+		byte[] truncated = Arrays.copyOf(body, body.length / 2);
+
+		LogStreamIngester.IngestResult result = ingester.ingest(ingester.decode(stream(truncated), "gzip"));
+
+		assertThat(result.error()).startsWith("Could not read request body");
+		verify(logProducer).flush();
+	}
+
+	@Test
+	void unsupportedEncodingIsRejected() {
+		assertThatThrownBy(() -> ingester.decode(stream(new byte[0]), "br"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("br");
+	}
+
+	private static InputStream stream(byte[] body) {
+		return new ByteArrayInputStream(body);
+	}
+
+	private interface Compressor {
+		OutputStream wrap(OutputStream out) throws IOException;
+	}
+
+	private static byte[] compress(String body, Compressor compressor) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = compressor.wrap(bytes)) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,95 @@
+package com.incident.log_collector_service.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.incident.log_collector_service.model.LogEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WireCodecTests {
+
+	// anomaly-detector-service's WireCodecTests unpacks these same bytes; change both when the format changes
+	static final String GOLDEN_ENVELOPE =
+			"010201b3010a636865636b6f75742d3010636865636b6f75742d73657276696365020c4f7264657220706c6163656480"
+			+ "a595d90c0001b3020a636865636b6f75742d3110636865636b6f75742d7365727669636504115a61686c756e67206162"
+			+ "67656c65686e740107617474656d70740204";
+
+	// The JSON the Kafka JsonSerializer writes when envelopes are off
+	private final ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+
+	static List<LogEvent> goldenEvents() {
+		return List.of(
+				LogEvent.builder()
+						.id("checkout-0")
+						.serviceName("checkout-service")
+						.level(LogEvent.LogLevel.INFO)
+						.message("Order placed")
+						.timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+						.build(),
+				LogEvent.builder()
+						.id("checkout-1")
+						.serviceName("checkout-service")
+						.level(LogEvent.LogLevel.ERROR)
+						.message("Zahlung abgelehnt")
+						.metadata(Map.of("attempt", 2))
+						.build());
+	}
+
+	@Test
+	void envelopeEncodesToTheGoldenBytes() {
+		List<byte[]> encoded = goldenEvents().stream().map(WireCodec::encode).toList();
+
+		assertThat(HexFormat.of().formatHex(WireCodec.encodeEnvelope(encoded))).isEqualTo(GOLDEN_ENVELOPE);
+	}
+
+	@Test
+	void envelopeSizeIsTheEncodedLength() {
+		byte[] event = WireCodec.encode(goldenEvents().get(1));
+		// 127 and 128 events straddle the one-byte count
+		for (int count : new int[]{1, 127, 128}) {
+			List<byte[]> events = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				events.add(event);
+			}
+
+			assertThat(WireCodec.encodeEnvelope(events).length)
+					.isEqualTo((int) WireCodec.envelopeSize(count, (long) count * event.length));
+		}
+	}
+
+	@Test
+	void envelopeIsAFractionOfTheSameEventsAsJsonRecords() throws Exception {
+		List<byte[]> encoded = new ArrayList<>();
+		long jsonBytes = 0;
+		for (int i = 0; i < 200; i++) {
+			LogEvent event = LogEvent.builder()
+					.id("2f1c0e6a-5b7d-4c1e-9a3f-" + String.format("%012d", i))
+					.serviceName("checkout-service")
+					.hostname("checkout-7d9f8")
+					.level(i % 10 == 0 ? LogEvent.LogLevel.WARN : LogEvent.LogLevel.INFO)
+					.message("Processed order " + (10_000 + i) + " in " + (i % 50) + " ms")
+					.timestamp(LocalDateTime.of(2024, 1, 1, 12, 0).plusNanos(i * 1_000_000L))
+					.metadata(Map.of("region", "eu-west-1", "items", i % 7))
+					.build();
+			encoded.add(WireCodec.encode(event));
+			// Each JSON record also carries its key and the service and level headers LogProducer sets
+			jsonBytes += objectMapper.writeValueAsBytes(event).length
+					+ event.getServiceName().getBytes(StandardCharsets.UTF_8).length
+					+ "service".length() + event.getServiceName().length()
+					+ "level".length() + event.getLevel().name().length();
+		}
+		int envelopeBytes = WireCodec.encodeEnvelope(encoded).length;
+
+		// Measured at 27,958 bytes for the envelope against 71,440 bytes of JSON records, before compression
+		assertThat(envelopeBytes).as("envelope %d bytes, JSON records %d bytes", envelopeBytes, jsonBytes)
+				.isLessThanOrEqualTo((int) (jsonBytes * 45 / 100));
+	}
+}